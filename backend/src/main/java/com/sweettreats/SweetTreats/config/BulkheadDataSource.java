@@ -0,0 +1,77 @@
+package com.sweettreats.SweetTreats.config;
+
+import com.sweettreats.SweetTreats.service.impl.Bulkheads;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Aplica el compartimento del hilo (Bulkheads) a cada conexión: la cuenta contra el
+ * cupo de conexiones del compartimento hasta que se cierra, y le pone el timeout del
+ * compartimento a cada sentencia que crea. Fuera de un compartimento no hace nada.
+ */
+public class BulkheadDataSource extends DelegatingDataSource {
+
+    private final ObjectProvider<Bulkheads> bulkheads;
+
+    public BulkheadDataSource(DataSource target, ObjectProvider<Bulkheads> bulkheads) {
+        super(target);
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Bulkheads b = bulkheads.getIfAvailable();
+        Bulkheads.Compartimento c = b != null ? b.actual() : null;
+        if (c == null) {
+            return super.getConnection();
+        }
+        boolean reservada = b.reservarConexion(c);
+        try {
+            return envolver(super.getConnection(), b, c, reservada);
+        } catch (SQLException | RuntimeException e) {
+            if (reservada) {
+                b.liberarConexion(c);
+            }
+            throw e;
+        }
+    }
+
+    private static Connection envolver(Connection conexion, Bulkheads b, Bulkheads.Compartimento c, boolean reservada) {
+        int timeout = b.timeoutSentenciaSegundos(c);
+        AtomicBoolean cerrada = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(BulkheadDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (cerrada.compareAndSet(false, true) && reservada) {
+                                b.liberarConexion(c);
+                            }
+                            break;
+                        default:
+                    }
+                    Object resultado;
+                    try {
+                        resultado = metodo.invoke(conexion, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                    // createStatement, prepareStatement y prepareCall
+                    if (timeout > 0 && resultado instanceof Statement st) {
+                        st.setQueryTimeout(timeout);
+                    }
+                    return resultado;
+                });
+    }
+}
@@ -0,0 +1,54 @@
+package com.sweettreats.SweetTreats.config;
+
+import com.sweettreats.SweetTreats.service.impl.Bulkheads;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class JdbcConfig {
+
+    // Permite que el driver de MySQL envíe los batch de JDBC en un solo round-trip
+    @Bean
+    public static BeanPostProcessor mysqlBatchingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource ds) {
+                    ds.addDataSourceProperty("rewriteBatchedStatements", "true");
+                }
+                return bean;
+            }
+        };
+    }
+
+    // El DataSource que usan JPA y JdbcTemplate respeta los cupos y timeouts de cada compartimento
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor(ObjectProvider<Bulkheads> bulkheads) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource ds) {
+                    return new BulkheadDataSource(ds, bulkheads);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Los ids de pedidos y detalles se generan en memoria, así que Hibernate puede agrupar los INSERT
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return props -> {
+            props.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+            props.putIfAbsent(AvailableSettings.ORDER_INSERTS, "true");
+            props.putIfAbsent(AvailableSettings.ORDER_UPDATES, "true");
+        };
+    }
+}
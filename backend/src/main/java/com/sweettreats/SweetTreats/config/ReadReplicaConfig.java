@@ -0,0 +1,74 @@
+package com.sweettreats.SweetTreats.config;
+
+import com.sweettreats.SweetTreats.service.impl.ReadYourWrites;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Réplica de lectura, activa solo si está app.datasource.replica.url. Las transacciones
+ * readOnly (reportes, catálogo, historial del cliente) piden la conexión a
+ * ReplicaRoutingDataSource; todo lo demás sigue en la primaria de spring.datasource.
+ *
+ * LazyConnectionDataSourceProxy demora la conexión real hasta la primera sentencia, cuando
+ * ya se sabe si la transacción es de solo lectura. En desarrollo la réplica puede ser una
+ * segunda instancia local, p. ej. app.datasource.replica.url=jdbc:mysql://localhost:3307/sweettreats
+ */
+@Configuration
+@ConditionalOnProperty("app.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primaria");
+        return ds;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username:${spring.datasource.username}}") String usuario,
+                                              @Value("${app.datasource.replica.password:${spring.datasource.password:}}") String clave) {
+        HikariDataSource ds = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(usuario)
+                .password(clave)
+                .build();
+        ds.setPoolName("replica");
+        ds.setReadOnly(true);
+        return ds;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource lecturasDataSource(@Qualifier("primaryDataSource") DataSource primaria,
+                                                       @Qualifier("replicaDataSource") DataSource replica,
+                                                       ReadYourWrites readYourWrites,
+                                                       @Value("${app.datasource.replica.max-lag:5s}") Duration maxRetraso) {
+        return new ReplicaRoutingDataSource(primaria, replica, readYourWrites, maxRetraso);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaria,
+                                 ReplicaRoutingDataSource lecturas) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaria);
+        proxy.setReadOnlyDataSource(lecturas);
+        return proxy;
+    }
+}
@@ -0,0 +1,98 @@
+package com.sweettreats.SweetTreats.config;
+
+import com.sweettreats.SweetTreats.service.impl.ReadYourWrites;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Origen de las conexiones de solo lectura. Va a la réplica salvo que esté atrasada más
+ * de lo tolerado, que no responda, o que el usuario del request acabe de confirmar un
+ * pedido (ReadYourWrites); en esos casos la lectura cae en la primaria.
+ *
+ * El retraso se mide con SHOW REPLICA STATUS. Una instancia sin replicación configurada
+ * (la segunda base local que se usa como réplica en desarrollo y pruebas) no devuelve
+ * filas y se toma como al día.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    enum Destino { PRIMARIA, REPLICA }
+
+    private final DataSource replica;
+    private final ReadYourWrites readYourWrites;
+    private final long maxRetrasoSegundos;
+
+    // Hasta la primera medición se lee de la primaria
+    private volatile boolean replicaAlDia;
+
+    public ReplicaRoutingDataSource(DataSource primaria,
+                                    DataSource replica,
+                                    ReadYourWrites readYourWrites,
+                                    Duration maxRetraso) {
+        this.replica = replica;
+        this.readYourWrites = readYourWrites;
+        this.maxRetrasoSegundos = maxRetraso.toSeconds();
+        setTargetDataSources(Map.of(Destino.PRIMARIA, primaria, Destino.REPLICA, replica));
+        setDefaultTargetDataSource(primaria);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!replicaAlDia || readYourWrites.fijado(usuarioActual())) {
+            return Destino.PRIMARIA;
+        }
+        return Destino.REPLICA;
+    }
+
+    private static String usuarioActual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() ? auth.getName() : null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-ms:2000}")
+    public void medirRetraso() {
+        boolean alDia;
+        String motivo;
+        try (Connection c = replica.getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                alDia = true;
+                motivo = "sin replicación configurada";
+            } else {
+                long segundos = rs.getLong("Seconds_Behind_Source");
+                // NULL: el hilo SQL de replicación está detenido
+                alDia = !rs.wasNull() && segundos <= maxRetrasoSegundos;
+                motivo = rs.wasNull() ? "replicación detenida" : segundos + " s de retraso";
+            }
+        } catch (SQLException e) {
+            alDia = false;
+            motivo = e.getMessage();
+        }
+        if (alDia != replicaAlDia) {
+            if (alDia) {
+                log.info("Transacciones de solo lectura a la réplica ({})", motivo);
+            } else {
+                log.warn("Transacciones de solo lectura a la primaria: réplica atrasada o no disponible ({})", motivo);
+            }
+        }
+        replicaAlDia = alDia;
+    }
+
+    public boolean replicaAlDia() {
+        return replicaAlDia;
+    }
+}
@@ -2,6 +2,7 @@ package com.sweettreats.SweetTreats.config;
 
 import com.sweettreats.SweetTreats.config.filter.JwtTokenValidator;
 import com.sweettreats.SweetTreats.util.JwtUtil;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -36,6 +37,9 @@ public class SecurityConfig {
                .csrf(csrf -> csrf.disable())
                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                .authorizeHttpRequests(http -> {
+                   // Los despachos ASYNC/ERROR (p. ej. el stream SSE) ya se autorizaron en el request original
+                   http.dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll();
+
                    // 🔓 SWAGGER
                    http.requestMatchers(
                            "/swagger-ui/**",
@@ -66,10 +70,12 @@ public class SecurityConfig {
                    // 📊 ADMINISTRACIÓN
                    http.requestMatchers(HttpMethod.GET, "/api/orders/admin/**").hasRole("ADMIN");
                    http.requestMatchers(HttpMethod.PUT,  "/api/orders/admin/{id:[0-9]+}").hasRole("ADMIN");
+                   http.requestMatchers(HttpMethod.PUT,  "/api/orders/admin/status").hasRole("ADMIN");
                    http.requestMatchers(HttpMethod.POST, "/api/products").hasRole("ADMIN");
                    http.requestMatchers(HttpMethod.PUT, "/api/products/**").hasRole("ADMIN");
                    http.requestMatchers(HttpMethod.DELETE, "/api/products/**").hasRole("ADMIN");
                    http.requestMatchers(HttpMethod.GET, "/api/reports/**").hasRole("ADMIN");
+                   http.requestMatchers(HttpMethod.POST, "/api/reports/jobs").hasRole("ADMIN");
                    http.requestMatchers(HttpMethod.GET,    "/api/users/**").hasRole("ADMIN");
                    http.requestMatchers(HttpMethod.PUT,    "/api/users/**").hasRole("ADMIN");
                    http.requestMatchers(HttpMethod.DELETE, "/api/users/**").hasRole("ADMIN");
@@ -11,6 +11,15 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Value("${app.upload.dir}")
     private String uploadDir;
 
+    // Los exports en streaming corren como request asíncrono; el default del contenedor (30s) los cortaría
+    @Value("${app.web.async-timeout-ms:3600000}")
+    private long asyncTimeoutMillis;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncTimeoutMillis);
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         System.out.println(">> Mapeando /uploads/** → file:" + uploadDir + "/ y classpath:/static/uploads/");
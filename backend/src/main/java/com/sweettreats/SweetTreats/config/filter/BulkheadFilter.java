@@ -0,0 +1,117 @@
+package com.sweettreats.SweetTreats.config.filter;
+
+import com.sweettreats.SweetTreats.exception.BulkheadLlenoException;
+import com.sweettreats.SweetTreats.service.impl.Bulkheads;
+import com.sweettreats.SweetTreats.service.impl.Bulkheads.Compartimento;
+import io.micrometer.common.lang.NonNull;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Asigna cada request a su compartimento y rechaza con 503 + Retry-After si está lleno.
+// Corre después de Spring Security: un request sin permiso no ocupa cupo.
+@Component
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Bulkheads bulkheads;
+
+    public BulkheadFilter(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    static Compartimento clasificar(String metodo, String ruta) {
+        if (ruta.startsWith("/api/reports/jobs")) {
+            // Encolar y consultar jobs es liviano: el cálculo corre en el pool de ReportJobService
+            return Compartimento.ADMIN;
+        }
+        if (ruta.startsWith("/api/reports/")) {
+            // Las estadísticas tienen que responder justamente cuando los reportes están saturados
+            return ruta.endsWith("/stats") ? null : Compartimento.REPORTES;
+        }
+        if (ruta.startsWith("/api/orders/admin/")) {
+            // El stream SSE vive horas y ya tiene su propio tope de suscripciones
+            return ruta.equals("/api/orders/admin/stream") ? null : Compartimento.ADMIN;
+        }
+        if (ruta.startsWith("/api/users")
+                || (ruta.startsWith("/api/products") && !"GET".equals(metodo))) {
+            return Compartimento.ADMIN;
+        }
+        if (("POST".equals(metodo) && (ruta.equals("/api/orders") || ruta.startsWith("/api/payments/")))
+                || ("PUT".equals(metodo) && ruta.startsWith("/api/orders/") && ruta.endsWith("/cancel"))) {
+            return Compartimento.CHECKOUT;
+        }
+        return null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Compartimento c = clasificar(request.getMethod(), request.getRequestURI().substring(request.getContextPath().length()));
+        if (c == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Bulkheads.Permiso permiso;
+        try {
+            permiso = bulkheads.entrar(c);
+        } catch (BulkheadLlenoException e) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getReintentarEnSegundos()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("{\"message\":\"" + e.getReason() + "\"}");
+            return;
+        }
+
+        Compartimento anterior = bulkheads.marcar(c);
+        boolean asincrono = false;
+        try {
+            filterChain.doFilter(request, response);
+            // Un export sigue escribiendo después de que vuelve este hilo: el cupo se
+            // devuelve cuando termina la respuesta asíncrona
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new LiberarAlTerminar(permiso));
+                asincrono = true;
+            }
+        } finally {
+            bulkheads.restaurar(anterior);
+            if (!asincrono) {
+                permiso.cerrar();
+            }
+        }
+    }
+
+    private record LiberarAlTerminar(Bulkheads.Permiso permiso) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permiso.cerrar();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permiso.cerrar();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permiso.cerrar();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
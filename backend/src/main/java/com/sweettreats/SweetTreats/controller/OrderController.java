@@ -1,27 +1,38 @@
 package com.sweettreats.SweetTreats.controller;
 
+import com.sweettreats.SweetTreats.dto.BulkStatusRequest;
+import com.sweettreats.SweetTreats.dto.BulkStatusResponse;
+import com.sweettreats.SweetTreats.dto.CursorPage;
 import com.sweettreats.SweetTreats.dto.OrderRequest;
 import com.sweettreats.SweetTreats.dto.OrderResponse;
+import com.sweettreats.SweetTreats.dto.OrderSearchFilter;
 import com.sweettreats.SweetTreats.model.OrderEnum;
 import com.sweettreats.SweetTreats.model.UserModel;
 import com.sweettreats.SweetTreats.repository.OrderRepository;
 import com.sweettreats.SweetTreats.repository.UserRepository;
+import com.sweettreats.SweetTreats.service.impl.IdempotencyService;
+import com.sweettreats.SweetTreats.service.impl.OrderEventBroadcaster;
+import com.sweettreats.SweetTreats.service.impl.OrderIngestionPipeline;
 import com.sweettreats.SweetTreats.service.impl.OrderServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
+import java.time.LocalDateTime;
 import java.util.Map;
 
 @Tag(name = "Pedidos", description = "Gestión de pedidos para usuarios y administradores")
@@ -31,30 +42,44 @@ public class OrderController {
     private final OrderServiceImpl orderService;
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
+    private final ObjectProvider<OrderIngestionPipeline> ingestionPipeline;
+    private final IdempotencyService idempotencyService;
+    private final OrderEventBroadcaster eventBroadcaster;
 
     public OrderController(OrderServiceImpl orderService,
                            UserRepository userRepository,
-                           OrderRepository orderRepository) {
+                           OrderRepository orderRepository,
+                           ObjectProvider<OrderIngestionPipeline> ingestionPipeline,
+                           IdempotencyService idempotencyService,
+                           OrderEventBroadcaster eventBroadcaster) {
         this.orderService   = orderService;
         this.userRepository = userRepository;
         this.orderRepository= orderRepository;
+        this.ingestionPipeline = ingestionPipeline;
+        this.idempotencyService = idempotencyService;
+        this.eventBroadcaster = eventBroadcaster;
     }
 
     // ————————————— Usuario normal —————————————
 
     @Operation(
             summary     = "Listar mis pedidos",
-            description = "Devuelve todos los pedidos realizados por el usuario autenticado"
+            description = "Devuelve los pedidos del usuario autenticado, del más reciente al más antiguo, paginados por cursor"
     )
-    @ApiResponse(responseCode = "200", description = "Lista de pedidos retornada")
+    @ApiResponse(responseCode = "200", description = "Página de pedidos retornada")
+    @ApiResponse(responseCode = "400", description = "Cursor inválido")
     @GetMapping
-    public ResponseEntity<List<OrderResponse>> getUserOrders(
+    public ResponseEntity<CursorPage<OrderResponse>> getUserOrders(
+            @Parameter(description = "Cursor devuelto en nextCursor por la página anterior")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página (máximo 100)", example = "20")
+            @RequestParam(defaultValue = "20") int size,
             Authentication auth
     ) {
         UserModel user = userRepository.findUserModelByEmail(auth.getName())
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.UNAUTHORIZED, "Usuario no encontrado"));
-        return ResponseEntity.ok(orderService.obtenerPedidosDeUsuario(user));
+        return ResponseEntity.ok(orderService.obtenerPedidosDeUsuario(user, cursor, size));
     }
 
     @Operation(
@@ -77,20 +102,39 @@ public class OrderController {
 
     @Operation(
             summary     = "Crear un nuevo pedido",
-            description = "Genera un pedido con los ítems indicados para el usuario autenticado"
+            description = "Genera un pedido con los ítems indicados para el usuario autenticado. " +
+                          "Con el header Idempotency-Key los reintentos devuelven el pedido ya creado."
     )
     @ApiResponse(responseCode = "201", description = "Pedido creado correctamente")
     @ApiResponse(responseCode = "400", description = "Datos de pedido inválidos")
+    @ApiResponse(responseCode = "409", description = "La misma Idempotency-Key está en curso")
+    @ApiResponse(responseCode = "422", description = "La Idempotency-Key ya se usó con otro pedido")
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(
             @Valid @RequestBody OrderRequest request,
+            @Parameter(description = "Clave única por intento de compra; los reintentos deben repetirla")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication auth
     ) {
         UserModel user = userRepository.findUserModelByEmail(auth.getName())
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.UNAUTHORIZED, "Usuario no encontrado"));
-        OrderResponse resp = orderService.crearPedido(request, user);
-        return ResponseEntity.status(HttpStatus.CREATED).body(resp);
+        if (idempotencyKey == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(crearPedido(request, user));
+        }
+        IdempotencyService.Resultado<OrderResponse> resultado = idempotencyService.ejecutar(
+                "orders", user.getId(), idempotencyKey, request, OrderResponse.class,
+                () -> crearPedido(request, user));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header("Idempotent-Replayed", String.valueOf(resultado.repetido()))
+                .body(resultado.valor());
+    }
+
+    private OrderResponse crearPedido(OrderRequest request, UserModel user) {
+        OrderIngestionPipeline pipeline = ingestionPipeline.getIfAvailable();
+        return pipeline != null
+                ? pipeline.crearPedido(request, user)
+                : orderService.crearPedido(request, user);
     }
 
     @Operation(summary = "Cancelar pedido (usuario)", description = "Permite que el dueño cancele su pedido si está PENDIENTE")
@@ -124,6 +168,52 @@ public class OrderController {
         return ResponseEntity.ok(orderService.obtenerTodosLosPedidos(pageable));
     }
 
+    @Operation(
+            summary     = "Buscar pedidos (ADMIN)",
+            description = "Lista pedidos del más reciente al más antiguo, paginados por cursor, con filtros opcionales " +
+                          "por estado, rango de fechas [desde, hasta) y usuario. El total solo se calcula si count=true."
+    )
+    @ApiResponse(responseCode = "200", description = "Página de pedidos retornada")
+    @ApiResponse(responseCode = "400", description = "Cursor o filtros inválidos")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/search")
+    public ResponseEntity<CursorPage<OrderResponse>> searchOrders(
+            @Parameter(description = "Estado del pedido", example = "PENDIENTE")
+            @RequestParam(required = false) OrderEnum estado,
+            @Parameter(description = "Fecha/hora inicial (inclusive)", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @Parameter(description = "Fecha/hora final (exclusiva)", example = "2025-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @Parameter(description = "ID del usuario", example = "2")
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "Cursor devuelto en nextCursor por la página anterior")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página (máximo 100)", example = "20")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Calcular el total de resultados", example = "false")
+            @RequestParam(defaultValue = "false") boolean count
+    ) {
+        OrderSearchFilter filter = new OrderSearchFilter(estado, desde, hasta, userId);
+        return ResponseEntity.ok(orderService.buscarPedidosAdmin(filter, cursor, size, count));
+    }
+
+    @Operation(
+            summary     = "Stream de cambios de pedidos (ADMIN)",
+            description = "Server-Sent Events con los pedidos creados (order-created) y los cambios de estado " +
+                          "(status-changed), emitidos después del commit. Con Last-Event-ID se retoma desde el " +
+                          "último evento recibido; si ya no está disponible llega un evento reset."
+    )
+    @ApiResponse(responseCode = "200", description = "Stream abierto")
+    @ApiResponse(responseCode = "503", description = "Demasiadas suscripciones abiertas")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(value = "/admin/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrders(
+            @Parameter(description = "Id del último evento recibido (lo envía EventSource al reconectar)")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return eventBroadcaster.suscribir(lastEventId);
+    }
+
     @Operation(
             summary     = "Obtener cualquier pedido por ID (ADMIN)",
             description = "Devuelve el detalle de un pedido cualquiera (solo ADMIN)"
@@ -139,6 +229,21 @@ public class OrderController {
         return ResponseEntity.ok(orderService.obtenerPedidoAdminPorId(id));
     }
 
+    @Operation(
+            summary     = "Actualizar estado de varios pedidos (ADMIN)",
+            description = "Aplica el mismo estado a una lista de pedidos (máximo 500) en una sola transacción. " +
+                          "Devuelve un resultado por id: ACTUALIZADO, SIN_CAMBIO o NO_ENCONTRADO."
+    )
+    @ApiResponse(responseCode = "200", description = "Resumen del cambio masivo")
+    @ApiResponse(responseCode = "400", description = "Solicitud inválida o stock insuficiente al reactivar")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping("/admin/status")
+    public ResponseEntity<BulkStatusResponse> updateOrderStatuses(
+            @Valid @RequestBody BulkStatusRequest request  // { "ids": [1, 2], "estado": "ENTREGADO" }
+    ) {
+        return ResponseEntity.ok(orderService.updateOrderStatuses(request.ids(), request.estado()));
+    }
+
     @Operation(
             summary     = "Actualizar estado de pedido (ADMIN)",
             description = "Permite cambiar el estado de un pedido (solo ADMIN)"
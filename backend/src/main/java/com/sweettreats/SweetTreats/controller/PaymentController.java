@@ -3,12 +3,14 @@ package com.sweettreats.SweetTreats.controller;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -29,7 +31,8 @@ public class PaymentController {
 
     @Operation(
             summary     = "Crear PaymentIntent",
-            description = "Genera un PaymentIntent en Stripe. El cuerpo debe incluir 'amount' (en centavos) y opcionalmente 'currency'."
+            description = "Genera un PaymentIntent en Stripe. El cuerpo debe incluir 'amount' (en centavos) y opcionalmente 'currency'. " +
+                          "Con el header Idempotency-Key los reintentos devuelven el mismo PaymentIntent."
     )
     @ApiResponse(responseCode = "200", description = "Se devuelve el clientSecret del PaymentIntent")
     @ApiResponse(responseCode = "400", description = "Datos de solicitud inválidos")
@@ -39,7 +42,9 @@ public class PaymentController {
                     description = "{ \"amount\": 12345, \"currency\": \"usd\" }",
                     required = true
             )
-            @org.springframework.web.bind.annotation.RequestBody Map<String, Object> data
+            @org.springframework.web.bind.annotation.RequestBody Map<String, Object> data,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication auth
     ) throws StripeException {
         Long amount = ((Number) data.get("amount")).longValue();
         String currency = (String) data.getOrDefault("currency", "usd");
@@ -49,7 +54,13 @@ public class PaymentController {
         params.put("currency", currency);
         params.put("automatic_payment_methods", Map.of("enabled", true));
 
-        PaymentIntent intent = PaymentIntent.create(params);
+        // Stripe deduplica por su cuenta; la clave se acota al usuario para que no choque entre clientes
+        RequestOptions options = idempotencyKey == null || idempotencyKey.isBlank()
+                ? RequestOptions.getDefault()
+                : RequestOptions.builder()
+                        .setIdempotencyKey("payment-intent:" + auth.getName() + ":" + idempotencyKey)
+                        .build();
+        PaymentIntent intent = PaymentIntent.create(params, options);
         return Map.of("clientSecret", intent.getClientSecret());
     }
 }
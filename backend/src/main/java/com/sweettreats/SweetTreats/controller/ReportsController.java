@@ -1,14 +1,28 @@
 package com.sweettreats.SweetTreats.controller;
 
 import com.sweettreats.SweetTreats.dto.*;
+import com.sweettreats.SweetTreats.model.OrderEnum;
 import com.sweettreats.SweetTreats.model.ProductModel;
+import com.sweettreats.SweetTreats.service.impl.Bulkheads;
+import com.sweettreats.SweetTreats.service.impl.OrderCsvExporter;
+import com.sweettreats.SweetTreats.service.impl.ReportJobService;
 import com.sweettreats.SweetTreats.service.impl.ReportsServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 
 @Tag(name = "Reportes", description = "Estadísticas y métricas del sistema")
@@ -17,9 +31,144 @@ import java.util.List;
 public class ReportsController {
 
     private final ReportsServiceImpl svc;
+    private final OrderCsvExporter exporter;
+    private final Bulkheads bulkheads;
+    private final ReportJobService jobs;
 
-    public ReportsController(ReportsServiceImpl s) {
+    public ReportsController(ReportsServiceImpl s, OrderCsvExporter exporter, Bulkheads bulkheads,
+                             ReportJobService jobs) {
         this.svc = s;
+        this.exporter = exporter;
+        this.bulkheads = bulkheads;
+        this.jobs = jobs;
+    }
+
+    @Operation(
+            summary = "Encolar un reporte pesado",
+            description = "Crea un job que corre en segundo plano. tipo: ventas-producto-semana (ventas por producto " +
+                          "y semana) o sin-ventas (productos activos sin ventas en el rango). Un pedido igual a uno " +
+                          "en curso o terminado hace poco devuelve ese mismo job"
+    )
+    @ApiResponse(responseCode = "202", description = "Job encolado; consultar su estado con el id")
+    @ApiResponse(responseCode = "400", description = "Tipo o rango inválido")
+    @ApiResponse(responseCode = "503", description = "Cola de reportes llena; reintentar según Retry-After")
+    @PostMapping("/jobs")
+    public ResponseEntity<ReportJobDto> submitJob(@RequestBody ReportJobRequest request, Authentication auth) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobs.enviar(request, auth.getName()));
+    }
+
+    @Operation(summary = "Estado de un job de reporte", description = "Estado y avance (0 a 100) del job")
+    @ApiResponse(responseCode = "200", description = "Estado del job")
+    @ApiResponse(responseCode = "404", description = "No existe o ya venció")
+    @GetMapping("/jobs/{id}")
+    public ReportJobDto job(@PathVariable Long id) {
+        return jobs.estado(id);
+    }
+
+    @Operation(
+            summary = "Resultado de un job de reporte",
+            description = "Array JSON con las filas del reporte. Se entrega comprimido con gzip (Content-Encoding) " +
+                          "si el cliente lo acepta en Accept-Encoding; si no, sin comprimir"
+    )
+    @ApiResponse(responseCode = "200", description = "Resultado del reporte")
+    @ApiResponse(responseCode = "404", description = "No existe o ya venció")
+    @ApiResponse(responseCode = "409", description = "Todavía no terminó o falló")
+    @GetMapping("/jobs/{id}/result")
+    public ResponseEntity<byte[]> jobResult(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (aceptaGzip(acceptEncoding)) {
+            return respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(jobs.resultadoComprimido(id));
+        }
+        return respuesta.body(jobs.resultado(id));
+    }
+
+    // gzip con q distinto de 0, o * si gzip no figura (RFC 9110, 12.5.3)
+    private static boolean aceptaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean comodin = null;
+        for (String codificacion : acceptEncoding.split(",")) {
+            String[] partes = codificacion.split(";");
+            String nombre = partes[0].trim();
+            boolean aceptada = true;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim();
+                if (parametro.startsWith("q=")) {
+                    try {
+                        aceptada = Double.parseDouble(parametro.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        aceptada = false;
+                    }
+                }
+            }
+            if (nombre.equalsIgnoreCase("gzip")) {
+                return aceptada;
+            }
+            if (nombre.equals("*")) {
+                comodin = aceptada;
+            }
+        }
+        return Boolean.TRUE.equals(comodin);
+    }
+
+    @Operation(
+            summary = "Exportar pedidos a CSV",
+            description = "Descarga los pedidos con sus líneas (una fila por línea) filtrados por fechas y estado. " +
+                          "Se genera mientras se descarga, sin límite de tamaño; con gzip=true se entrega comprimido"
+    )
+    @ApiResponse(responseCode = "200", description = "Archivo CSV de pedidos")
+    @ApiResponse(responseCode = "400", description = "Rango de fechas inválido")
+    @GetMapping("/export/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @Parameter(description = "Desde (inclusive), formato yyyy-MM-dd", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Hasta (inclusive), formato yyyy-MM-dd", example = "2025-12-31")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Estado del pedido", example = "ENTREGADO")
+            @RequestParam(required = false) OrderEnum estado,
+            @Parameter(description = "Comprimir con gzip", example = "false")
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La fecha desde es posterior a hasta");
+        }
+        String archivo = "pedidos" + (from != null ? "_" + from : "") + (to != null ? "_" + to : "")
+                + (gzip ? ".csv.gz" : ".csv");
+        // Se escribe en un hilo del pool async de MVC: la conexión cuenta contra el cupo de reportes
+        StreamingResponseBody cuerpo = out -> bulkheads.en(Bulkheads.Compartimento.REPORTES, () -> {
+            exporter.exportar(out, from, to, estado, gzip);
+            return null;
+        });
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"")
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                                  : new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(cuerpo);
+    }
+
+    @Operation(
+            summary = "Panel de reportes",
+            description = "Devuelve en una sola respuesta ventas totales, tendencia, ticket promedio, crecimiento, " +
+                          "productos más vendidos, bajo stock y sin ventas; los KPIs se calculan en paralelo"
+    )
+    @ApiResponse(responseCode = "200", description = "KPIs del panel obtenidos")
+    @ApiResponse(responseCode = "504", description = "Los KPIs no terminaron a tiempo")
+    @GetMapping("/dashboard")
+    public DashboardDto dashboard(
+            @Parameter(description = "Período: today, week, month, year o all", example = "month")
+            @RequestParam(defaultValue = "month") String period,
+            @Parameter(description = "Umbral de bajo stock", example = "10")
+            @RequestParam(defaultValue = "10") int lowStockThreshold,
+            @Parameter(description = "Días sin ventas", example = "30")
+            @RequestParam(defaultValue = "30") int noSalesDays
+    ) {
+        return svc.getDashboard(period, lowStockThreshold, noSalesDays);
     }
 
     @Operation(
@@ -43,9 +192,13 @@ public class ReportsController {
     @GetMapping("/sales-trend")
     public TrendDto salesTrend(
             @Parameter(description = "Período: day, week o month", example = "month")
-            @RequestParam String period
+            @RequestParam String period,
+            @Parameter(description = "Granularidad: day u hour", example = "hour")
+            @RequestParam(defaultValue = "day") String granularity,
+            @Parameter(description = "Máximo de puntos (LTTB); 0 devuelve la serie completa. Por defecto el del gráfico", example = "300")
+            @RequestParam(required = false) Integer points
     ) {
-        return svc.getSalesTrend(period);
+        return points == null ? svc.getSalesTrend(period, granularity) : svc.getSalesTrend(period, granularity, points);
     }
 
     @Operation(
@@ -61,6 +214,48 @@ public class ReportsController {
         return svc.getTicketAverage(period);
     }
 
+    @Operation(
+            summary = "Percentiles de ticket",
+            description = "Devuelve p50, p90, p99 y máximo del total de los pedidos del período, " +
+                          "con error relativo menor a 1,6%"
+    )
+    @ApiResponse(responseCode = "200", description = "Distribución de tickets obtenida")
+    @GetMapping("/ticket-percentiles")
+    public TicketPercentilesDto ticketPercentiles(
+            @Parameter(description = "Período: today, week, month, year o all", example = "month")
+            @RequestParam String period
+    ) {
+        return svc.getTicketPercentiles(period);
+    }
+
+    @Operation(
+            summary = "Clientes únicos",
+            description = "Cantidad estimada de compradores distintos en el período (HyperLogLog, " +
+                          "error relativo estándar 1,6%: el 95% de las veces dentro de ±3,3%)"
+    )
+    @ApiResponse(responseCode = "200", description = "Clientes únicos obtenidos")
+    @GetMapping("/unique-customers")
+    public UniqueCustomersDto uniqueCustomers(
+            @Parameter(description = "Período: today, week, month, year o all", example = "month")
+            @RequestParam String period
+    ) {
+        return svc.getUniqueCustomers(period);
+    }
+
+    @Operation(
+            summary = "Tasa de recompra",
+            description = "Proporción de compradores del período que ya habían comprado antes o compraron más " +
+                          "de una vez. Estimación HyperLogLog: la tasa tiene un error relativo estándar de ~2,3%"
+    )
+    @ApiResponse(responseCode = "200", description = "Tasa de recompra obtenida")
+    @GetMapping("/repeat-rate")
+    public RepeatRateDto repeatRate(
+            @Parameter(description = "Período: today, week, month, year o all", example = "month")
+            @RequestParam String period
+    ) {
+        return svc.getRepeatRate(period);
+    }
+
     @Operation(
             summary = "Crecimiento de ventas",
             description = "Muestra el porcentaje de crecimiento o caída en ventas respecto al período anterior"
@@ -76,12 +271,18 @@ public class ReportsController {
 
     @Operation(
             summary = "Productos más vendidos",
-            description = "Retorna un listado de los productos con más ventas"
+            description = "Retorna los 10 productos con más unidades vendidas en el período, agrupados por id. " +
+                          "Con exact=true se calcula en SQL, para verificar el resultado en memoria"
     )
     @ApiResponse(responseCode = "200", description = "Lista de productos más vendidos")
     @GetMapping("/top-products")
-    public List<ProductStatDto> topProducts() {
-        return svc.getTopProducts();
+    public List<ProductStatDto> topProducts(
+            @Parameter(description = "Período: today, week, month, year o all", example = "month")
+            @RequestParam(defaultValue = "all") String period,
+            @Parameter(description = "Calcular en SQL sin cache ni estructuras en memoria", example = "false")
+            @RequestParam(defaultValue = "false") boolean exact
+    ) {
+        return svc.getTopProducts(period, exact);
     }
 
     @Operation(
@@ -106,4 +307,35 @@ public class ReportsController {
     ) {
         return svc.getNoSales(sinceDays);
     }
+
+    @Operation(
+            summary = "Verificar cubo de ventas",
+            description = "Compara el cubo de ventas en memoria con las mismas agregaciones en SQL (por día y por producto)"
+    )
+    @ApiResponse(responseCode = "200", description = "Resultado de la verificación con las diferencias encontradas")
+    @GetMapping("/cube/consistency")
+    public CubeConsistencyDto cubeConsistency() {
+        return svc.checkCubeConsistency();
+    }
+
+    @Operation(
+            summary = "Estadísticas del cache de reportes",
+            description = "Devuelve hits, misses, invalidaciones, expulsiones y tamaño actual del cache de reportes"
+    )
+    @ApiResponse(responseCode = "200", description = "Estadísticas del cache obtenidas")
+    @GetMapping("/cache/stats")
+    public ReportCacheStatsDto cacheStats() {
+        return svc.getCacheStats();
+    }
+
+    @Operation(
+            summary = "Saturación de los compartimentos",
+            description = "Devuelve, para checkout, administración y reportes, los requests en curso y en espera, " +
+                          "las conexiones tomadas, los rechazos acumulados y la saturación (0 a 1)"
+    )
+    @ApiResponse(responseCode = "200", description = "Estado de los compartimentos obtenido")
+    @GetMapping("/bulkheads/stats")
+    public List<BulkheadStatsDto> bulkheadStats() {
+        return svc.getBulkheadStats();
+    }
 }
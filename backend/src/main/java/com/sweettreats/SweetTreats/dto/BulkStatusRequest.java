@@ -0,0 +1,13 @@
+package com.sweettreats.SweetTreats.dto;
+
+import com.sweettreats.SweetTreats.model.OrderEnum;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkStatusRequest(
+        @NotEmpty @Size(max = 500) List<@NotNull Long> ids,
+        @NotNull OrderEnum estado
+) {}
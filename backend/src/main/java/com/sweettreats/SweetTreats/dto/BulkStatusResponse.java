@@ -0,0 +1,18 @@
+package com.sweettreats.SweetTreats.dto;
+
+import com.sweettreats.SweetTreats.model.OrderEnum;
+
+import java.util.List;
+
+// Resumen compacto de un cambio de estado masivo: un resultado por id pedido
+public record BulkStatusResponse(
+        OrderEnum estado,
+        int actualizados,
+        int sinCambio,
+        int noEncontrados,
+        List<Resultado> resultados
+) {
+    public enum Tipo { ACTUALIZADO, SIN_CAMBIO, NO_ENCONTRADO }
+
+    public record Resultado(Long id, Tipo resultado, OrderEnum estadoAnterior) {}
+}
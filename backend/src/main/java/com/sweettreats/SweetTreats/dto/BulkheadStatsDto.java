@@ -0,0 +1,13 @@
+package com.sweettreats.SweetTreats.dto;
+
+public record BulkheadStatsDto(
+        String compartimento,
+        int enCurso,
+        int maxConcurrentes,
+        int enEspera,
+        int maxCola,
+        int conexionesEnUso,
+        int maxConexiones,
+        long rechazos,
+        double saturacion
+) {}
@@ -0,0 +1,11 @@
+package com.sweettreats.SweetTreats.dto;
+
+import java.util.List;
+
+// Resultado de comparar el SalesCube con las mismas agregaciones hechas en SQL
+public record CubeConsistencyDto(
+        boolean consistente,
+        int diasRevisados,
+        int productosRevisados,
+        List<String> diferencias
+) {}
@@ -0,0 +1,15 @@
+package com.sweettreats.SweetTreats.dto;
+
+import java.util.List;
+
+// Página obtenida por keyset: nextCursor es null cuando no hay más resultados
+// y total solo se informa cuando se pidió el conteo explícitamente
+public record CursorPage<T>(
+        List<T> items,
+        String nextCursor,
+        Long total
+) {
+    public CursorPage(List<T> items, String nextCursor) {
+        this(items, nextCursor, null);
+    }
+}
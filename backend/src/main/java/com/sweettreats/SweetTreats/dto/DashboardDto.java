@@ -0,0 +1,17 @@
+package com.sweettreats.SweetTreats.dto;
+
+import com.sweettreats.SweetTreats.model.ProductModel;
+
+import java.util.List;
+
+// Todos los KPIs del panel de reportes en una sola respuesta
+public record DashboardDto(
+        String period,
+        double totalSales,
+        TrendDto salesTrend,
+        double ticketAverage,
+        SalesGrowthDto salesGrowth,
+        List<ProductStatDto> topProducts,
+        List<ProductModel> lowStock,
+        List<ProductModel> noSales
+) {}
@@ -0,0 +1,11 @@
+package com.sweettreats.SweetTreats.dto;
+
+import java.time.LocalDateTime;
+
+// ultimaVenta es la última de todo el historial: puede ser posterior a la ventana pedida
+public record NoSalesProductDto(
+        Long productId,
+        String nombre,
+        Integer stock,
+        LocalDateTime ultimaVenta
+) {}
@@ -0,0 +1,18 @@
+package com.sweettreats.SweetTreats.dto;
+
+import com.sweettreats.SweetTreats.model.OrderEnum;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Proyección de la cabecera de un pedido: solo las columnas que necesita OrderResponse
+public record OrderHeaderDto(
+        Long id,
+        Long userId,
+        String email,
+        String direccionEnvio,
+        String metodoPago,
+        BigDecimal total,
+        OrderEnum estado,
+        LocalDateTime createdAt
+) {}
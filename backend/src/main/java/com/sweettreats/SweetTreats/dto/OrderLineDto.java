@@ -0,0 +1,12 @@
+package com.sweettreats.SweetTreats.dto;
+
+import java.math.BigDecimal;
+
+// Proyección de una línea de pedido con el nombre del producto
+public record OrderLineDto(
+        Long orderId,
+        Long productId,
+        String productName,
+        Integer cantidad,
+        BigDecimal precioUnitario
+) {}
@@ -0,0 +1,13 @@
+package com.sweettreats.SweetTreats.dto;
+
+import com.sweettreats.SweetTreats.model.OrderEnum;
+
+import java.time.LocalDateTime;
+
+// Filtros opcionales del listado de pedidos para ADMIN (null = sin filtrar)
+public record OrderSearchFilter(
+        OrderEnum estado,
+        LocalDateTime desde,
+        LocalDateTime hasta,
+        Long userId
+) {}
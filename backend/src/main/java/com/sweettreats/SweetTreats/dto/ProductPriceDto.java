@@ -0,0 +1,8 @@
+package com.sweettreats.SweetTreats.dto;
+
+// Datos de producto que necesita crearPedido, sin hidratar la entidad
+public record ProductPriceDto(
+        Long id,
+        String nombre,
+        Double precio
+) {}
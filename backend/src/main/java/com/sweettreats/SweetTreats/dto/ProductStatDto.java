@@ -3,18 +3,24 @@ package com.sweettreats.SweetTreats.dto;
 import java.math.BigDecimal;
 
 public class ProductStatDto {
+    private Long productId;
     private String nombre;
     private Long totalCantidad;
     private BigDecimal totalIngresos;
 
     // Hibernate necesita exactamente este constructor:
-    public ProductStatDto(String nombre, Long totalCantidad, BigDecimal totalIngresos) {
+    public ProductStatDto(Long productId, String nombre, Long totalCantidad, BigDecimal totalIngresos) {
+        this.productId = productId;
         this.nombre = nombre;
         this.totalCantidad = totalCantidad;
         this.totalIngresos = totalIngresos;
     }
 
     // getters (y setters si los necesitás)
+    public Long getProductId() {
+        return productId;
+    }
+
     public String getNombre() {
         return nombre;
     }
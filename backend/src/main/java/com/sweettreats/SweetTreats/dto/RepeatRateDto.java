@@ -0,0 +1,11 @@
+package com.sweettreats.SweetTreats.dto;
+
+// recurrentes: compradores del período con algún pedido que no era su primero (ya habían
+// comprado antes o compraron más de una vez en el período). tasa = recurrentes / compradores
+public record RepeatRateDto(
+        String period,
+        long compradores,
+        long recurrentes,
+        double tasa,
+        double errorRelativo
+) {}
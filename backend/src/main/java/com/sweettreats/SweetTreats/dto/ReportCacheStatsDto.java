@@ -0,0 +1,11 @@
+package com.sweettreats.SweetTreats.dto;
+
+public record ReportCacheStatsDto(
+        long hits,
+        long misses,
+        long invalidations,
+        long evictions,
+        int entries,
+        int maxEntries,
+        double hitRate
+) {}
@@ -0,0 +1,20 @@
+package com.sweettreats.SweetTreats.dto;
+
+import com.sweettreats.SweetTreats.model.ReportJobEnum;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public record ReportJobDto(
+        Long id,
+        String tipo,
+        LocalDate desde,
+        LocalDate hasta,
+        ReportJobEnum estado,
+        int progreso,
+        Integer filas,
+        String error,
+        LocalDateTime creadoEn,
+        LocalDateTime terminadoEn,
+        LocalDateTime expiraEn
+) {}
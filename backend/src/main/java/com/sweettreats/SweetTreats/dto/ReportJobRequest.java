@@ -0,0 +1,9 @@
+package com.sweettreats.SweetTreats.dto;
+
+import java.time.LocalDate;
+
+public record ReportJobRequest(
+        String tipo,
+        LocalDate desde,
+        LocalDate hasta
+) {}
@@ -0,0 +1,11 @@
+package com.sweettreats.SweetTreats.dto;
+
+// Montos con error relativo menor a 1/64 (ver LogHistogram); pedidos es exacto
+public record TicketPercentilesDto(
+        String period,
+        long pedidos,
+        double p50,
+        double p90,
+        double p99,
+        double max
+) {}
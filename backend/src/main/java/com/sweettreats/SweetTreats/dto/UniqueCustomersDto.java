@@ -0,0 +1,8 @@
+package com.sweettreats.SweetTreats.dto;
+
+// compradores es una estimación con el error relativo estándar indicado (≈95% de los casos dentro de ±2 errores)
+public record UniqueCustomersDto(
+        String period,
+        long compradores,
+        double errorRelativo
+) {}
@@ -0,0 +1,13 @@
+package com.sweettreats.SweetTreats.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// semana: el lunes de la semana
+public record WeeklyProductSalesDto(
+        Long productId,
+        String nombre,
+        LocalDate semana,
+        long unidades,
+        BigDecimal total
+) {}
@@ -0,0 +1,27 @@
+package com.sweettreats.SweetTreats.event;
+
+import com.sweettreats.SweetTreats.model.OrderEnum;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Se publica dentro de la transacción cada vez que se crea un pedido o cambia su estado
+public record OrderChangedEvent(
+        Long orderId,
+        Long userId,
+        OrderEnum estadoAnterior,
+        OrderEnum estado,
+        BigDecimal total,
+        LocalDateTime createdAt
+) {
+    public boolean esCreacion() {
+        return estadoAnterior == null;
+    }
+
+    // +1 si el pedido pasa a contar como venta, -1 si deja de contar (cancelado), 0 si no cambia
+    public int signoVenta() {
+        boolean antes = estadoAnterior != null && estadoAnterior != OrderEnum.CANCELADO;
+        boolean ahora = estado != OrderEnum.CANCELADO;
+        return antes == ahora ? 0 : (ahora ? 1 : -1);
+    }
+}
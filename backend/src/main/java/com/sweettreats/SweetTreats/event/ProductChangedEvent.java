@@ -0,0 +1,6 @@
+package com.sweettreats.SweetTreats.event;
+
+// Se publica cuando el ADMIN crea, edita, da de baja o reactiva un producto, y cuando el
+// StockLedger vuelca stock a products; productId es null si el cambio abarca varios
+public record ProductChangedEvent(Long productId) {
+}
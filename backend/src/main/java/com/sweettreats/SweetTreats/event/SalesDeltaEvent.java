@@ -0,0 +1,21 @@
+package com.sweettreats.SweetTreats.event;
+
+import com.sweettreats.SweetTreats.dto.OrderLineDto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Se publica después del commit con los pedidos que entraron (signo 1) o salieron (signo -1)
+// de las ventas, ya con sus líneas; lo consumen las estructuras de reportes en memoria
+public record SalesDeltaEvent(List<Venta> ventas) {
+
+    public record Venta(
+            Long orderId,
+            Long userId,
+            LocalDateTime createdAt,
+            BigDecimal total,
+            int signo,
+            List<OrderLineDto> lineas
+    ) {}
+}
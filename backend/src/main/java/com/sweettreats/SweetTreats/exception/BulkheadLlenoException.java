@@ -0,0 +1,27 @@
+package com.sweettreats.SweetTreats.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// 503 con Retry-After: el compartimento está lleno, conviene reintentar en vez de esperar
+public class BulkheadLlenoException extends ResponseStatusException {
+
+    private final long reintentarEnSegundos;
+
+    public BulkheadLlenoException(String reason, long reintentarEnSegundos) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, reason);
+        this.reintentarEnSegundos = reintentarEnSegundos;
+    }
+
+    public long getReintentarEnSegundos() {
+        return reintentarEnSegundos;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(reintentarEnSegundos));
+        return headers;
+    }
+}
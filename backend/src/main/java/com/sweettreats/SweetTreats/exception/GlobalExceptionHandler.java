@@ -3,9 +3,11 @@ package com.sweettreats.SweetTreats.exception;
 import com.sweettreats.SweetTreats.dto.AuthResponse;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -70,6 +72,19 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, String>> handleResponseStatus(ResponseStatusException ex) {
         return ResponseEntity
                 .status(ex.getStatusCode())
+                .headers(ex.getHeaders())
                 .body(Map.of("message", ex.getReason()));
     }
+
+    // El DataSource rechaza la conexión con BulkheadLlenoException, pero el transaction manager
+    // (o DataSourceUtils fuera de una transacción) la envuelve; se responde el 503 original
+    @ExceptionHandler({CannotCreateTransactionException.class, CannotGetJdbcConnectionException.class})
+    public ResponseEntity<Map<String, String>> handleSinConexion(RuntimeException ex) {
+        for (Throwable causa = ex.getCause(); causa != null; causa = causa.getCause()) {
+            if (causa instanceof BulkheadLlenoException lleno) {
+                return handleResponseStatus(lleno);
+            }
+        }
+        throw ex;
+    }
 }
@@ -0,0 +1,28 @@
+package com.sweettreats.SweetTreats.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// Sketches HyperLogLog de compradores por día cerrado (ver util.HyperLogLog); la mantiene BuyerSketches
+@Entity
+@Table(name = "daily_buyer_sketch")
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailyBuyerSketchModel {
+
+    @Id
+    private LocalDate dia;
+
+    // Todos los que compraron ese día
+    @Column(nullable = false, length = 4097)
+    private byte[] compradores;
+
+    // Los que ese día hicieron un pedido que no era el primero
+    @Column(nullable = false, length = 4097)
+    private byte[] recurrentes;
+}
@@ -0,0 +1,33 @@
+package com.sweettreats.SweetTreats.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Ventas agregadas por día (sin pedidos CANCELADO); la mantiene DailySalesRollup
+@Entity
+@Table(name = "daily_sales_rollup")
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailySalesRollupModel {
+
+    @Id
+    private LocalDate dia;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal total;
+
+    @Column(nullable = false)
+    private Long pedidos;
+
+    @Column(name = "min_total", precision = 19, scale = 2)
+    private BigDecimal minTotal;
+
+    @Column(name = "max_total", precision = 19, scale = 2)
+    private BigDecimal maxTotal;
+}
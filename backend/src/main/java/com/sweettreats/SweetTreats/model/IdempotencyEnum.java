@@ -0,0 +1,6 @@
+package com.sweettreats.SweetTreats.model;
+
+public enum IdempotencyEnum {
+    EN_CURSO,
+    COMPLETADO
+}
@@ -0,0 +1,50 @@
+package com.sweettreats.SweetTreats.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Respuestas guardadas por Idempotency-Key; respaldo en base de IdempotencyService
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_scope_user_key",
+                columnNames = {"scope", "user_id", "clave"}),
+        indexes = @Index(name = "idx_idempotency_expires", columnList = "expires_at"))
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyKeyModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String scope;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 64)
+    private String clave;
+
+    // SHA-256 del cuerpo: la misma clave con otro cuerpo es un error del cliente
+    @Column(nullable = false, length = 64)
+    private String huella;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private IdempotencyEnum estado;
+
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String respuesta;
+
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -1,5 +1,6 @@
 package com.sweettreats.SweetTreats.model;
 
+import com.sweettreats.SweetTreats.util.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -14,13 +15,13 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 public class OrderDetailModel {
     @Id
-    @GeneratedValue
+    @TimeOrderedId
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private OrderModel orderModel;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private ProductModel productModel;
 
     private Integer cantidad;
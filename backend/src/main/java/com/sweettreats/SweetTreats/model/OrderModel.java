@@ -1,14 +1,24 @@
 package com.sweettreats.SweetTreats.model;
 
+import com.sweettreats.SweetTreats.util.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_created", columnList = "usermodel_id, created_at, id"),
+        @Index(name = "idx_orders_created", columnList = "created_at, id"),
+        @Index(name = "idx_orders_estado_created", columnList = "estado, created_at, id"),
+        // Cubren la tendencia de ventas: rango sobre el bucket, filtro de estado y total sin ir a la fila
+        @Index(name = "idx_orders_dia", columnList = "dia, estado, total"),
+        @Index(name = "idx_orders_hora", columnList = "hora, estado, total")
+})
 @Builder
 @Getter
 @Setter
@@ -16,10 +26,10 @@ import java.util.List;
 @NoArgsConstructor
 public class OrderModel {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private UserModel usermodel;
 
     private BigDecimal total;
@@ -34,6 +44,11 @@ public class OrderModel {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Buckets de createdAt (día y hora truncados) persistidos para agrupar por columna
+    // indexada en vez de por una función sobre created_at
+    private LocalDate dia;
+    private LocalDateTime hora;
+
     @OneToMany(mappedBy = "orderModel", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderDetailModel> detalles;
 
@@ -41,6 +56,8 @@ public class OrderModel {
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        this.dia = createdAt.toLocalDate();
+        this.hora = createdAt.truncatedTo(ChronoUnit.HOURS);
     }
 
     @PreUpdate
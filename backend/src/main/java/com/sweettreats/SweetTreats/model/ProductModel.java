@@ -1,12 +1,15 @@
 package com.sweettreats.SweetTreats.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_last_sold", columnList = "last_sold_at")
+})
 @Builder
 @Getter
 @Setter
@@ -22,6 +25,8 @@ public class ProductModel {
     private String descripcion;
     private Double precio;
     private String imagen;
+    // Después del alta solo lo cambia el StockService por SQL, con deltas
+    @Column(updatable = false)
     private Integer stock;
 
     @Enumerated(EnumType.STRING)
@@ -31,6 +36,16 @@ public class ProductModel {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // Fecha del pedido no cancelado más reciente y unidades vendidas netas de cancelaciones.
+    // Las mantiene el StockService junto con el stock; ProductSalesStats hace el backfill.
+    // Solo se escriben por SQL, así que el UPDATE de la entidad no las pisa, y no se publican en la API
+    @JsonIgnore
+    @Column(updatable = false)
+    private LocalDateTime lastSoldAt;
+    @JsonIgnore
+    @Column(updatable = false)
+    private Long unidadesVendidas;
+
     public ProductModel(String nombre, String descripcion, double precio, String imagen, int stock) {
         this.nombre = nombre;
         this.descripcion = descripcion;
@@ -44,6 +59,9 @@ public class ProductModel {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = this.createdAt;
         this.status = Status.ACTIVE;
+        if (this.unidadesVendidas == null) {
+            this.unidadesVendidas = 0L;
+        }
     }
 
     @PreUpdate
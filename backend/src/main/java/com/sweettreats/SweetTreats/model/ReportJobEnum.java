@@ -0,0 +1,8 @@
+package com.sweettreats.SweetTreats.model;
+
+public enum ReportJobEnum {
+    PENDIENTE,
+    EN_CURSO,
+    TERMINADO,
+    FALLIDO
+}
@@ -0,0 +1,59 @@
+package com.sweettreats.SweetTreats.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Reportes pesados que corren en segundo plano; el resultado queda como JSON comprimido con gzip
+@Entity
+@Table(name = "report_jobs", indexes = {
+        @Index(name = "idx_report_jobs_clave", columnList = "clave, estado, finished_at"),
+        @Index(name = "idx_report_jobs_expires", columnList = "expires_at")
+})
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJobModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String tipo;
+
+    private LocalDate desde;
+    private LocalDate hasta;
+
+    // SHA-256 de tipo y parámetros: dos pedidos iguales comparten el job
+    @Column(nullable = false, length = 64)
+    private String clave;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ReportJobEnum estado;
+
+    private Integer filas;
+
+    @Lob
+    @Column(columnDefinition = "LONGBLOB")
+    private byte[] resultado;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "solicitado_por", length = 100)
+    private String solicitadoPor;
+
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
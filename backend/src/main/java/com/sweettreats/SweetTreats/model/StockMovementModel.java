@@ -0,0 +1,29 @@
+package com.sweettreats.SweetTreats.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Journal de movimientos de stock pendientes de aplicar a products (modo StockLedger)
+@Entity
+@Table(name = "stock_movements")
+@Builder
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockMovementModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer delta;
+
+    private LocalDateTime createdAt;
+}
@@ -1,46 +1,223 @@
 package com.sweettreats.SweetTreats.repository;
 
+import com.sweettreats.SweetTreats.dto.OrderHeaderDto;
+import com.sweettreats.SweetTreats.dto.OrderLineDto;
+import com.sweettreats.SweetTreats.model.OrderEnum;
 import com.sweettreats.SweetTreats.model.OrderModel;
 import com.sweettreats.SweetTreats.model.UserModel;
 import org.springframework.data.domain.Page;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface OrderRepository extends JpaRepository<OrderModel, Long> {
+public interface OrderRepository extends JpaRepository<OrderModel, Long>, OrderRepositoryCustom {
     List<OrderModel> findByUsermodel(UserModel user);
 
-    List<OrderModel> findAllByUsermodel(UserModel user);
-
     Page<OrderModel> findAll(Pageable pageable);
 
+    // Historial por keyset sobre (createdAt, id), apoyado en idx_orders_user_created
+    @Query("""
+      SELECT new com.sweettreats.SweetTreats.dto.OrderHeaderDto(
+               o.id, u.id, u.email, o.direccionEnvio, o.metodoPago, o.total, o.estado, o.createdAt)
+      FROM OrderModel o
+      JOIN o.usermodel u
+      WHERE u.id = :userId
+      ORDER BY o.createdAt DESC, o.id DESC
+    """)
+    List<OrderHeaderDto> findHistoryFirstPage(@Param("userId") Long userId, Pageable limit);
+
+    @Query("""
+      SELECT new com.sweettreats.SweetTreats.dto.OrderHeaderDto(
+               o.id, u.id, u.email, o.direccionEnvio, o.metodoPago, o.total, o.estado, o.createdAt)
+      FROM OrderModel o
+      JOIN o.usermodel u
+      WHERE u.id = :userId
+        AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id))
+      ORDER BY o.createdAt DESC, o.id DESC
+    """)
+    List<OrderHeaderDto> findHistoryPageAfter(@Param("userId") Long userId,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable limit);
+
+    @Query(value = """
+      SELECT new com.sweettreats.SweetTreats.dto.OrderHeaderDto(
+               o.id, u.id, u.email, o.direccionEnvio, o.metodoPago, o.total, o.estado, o.createdAt)
+      FROM OrderModel o
+      JOIN o.usermodel u
+    """, countQuery = "SELECT COUNT(o) FROM OrderModel o")
+    Page<OrderHeaderDto> findHeaders(Pageable pageable);
+
+    @Query("""
+      SELECT new com.sweettreats.SweetTreats.dto.OrderHeaderDto(
+               o.id, u.id, u.email, o.direccionEnvio, o.metodoPago, o.total, o.estado, o.createdAt)
+      FROM OrderModel o
+      JOIN o.usermodel u
+      WHERE o.id = :id
+    """)
+    Optional<OrderHeaderDto> findHeaderById(@Param("id") Long id);
+
+    @Query("""
+      SELECT new com.sweettreats.SweetTreats.dto.OrderLineDto(
+               d.orderModel.id, p.id, p.nombre, d.cantidad, d.precioUnitario)
+      FROM OrderDetailModel d
+      JOIN d.productModel p
+      WHERE d.orderModel.id IN :orderIds
+    """)
+    List<OrderLineDto> findLines(@Param("orderIds") Collection<Long> orderIds);
+
     @Query("""
       SELECT COALESCE(SUM(o.total),0)
       FROM OrderModel o
       WHERE o.createdAt >= :since
+        AND o.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
     """)
     double sumSalesSince(@Param("since") LocalDateTime since);
 
+    // Recorre idx_orders_dia en orden: sin tabla temporal ni lectura de filas
+    @Query("""
+      SELECT o.dia, COALESCE(SUM(o.total),0)
+      FROM OrderModel o
+      WHERE o.dia >= :since
+        AND o.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
+      GROUP BY o.dia
+      ORDER BY o.dia
+    """)
+    List<Object[]> sumSalesGroupByDay(@Param("since") LocalDate since);
+
+    // Igual que sumSalesGroupByDay, sobre idx_orders_hora
+    @Query("""
+      SELECT o.hora, COALESCE(SUM(o.total),0)
+      FROM OrderModel o
+      WHERE o.hora >= :since
+        AND o.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
+      GROUP BY o.hora
+      ORDER BY o.hora
+    """)
+    List<Object[]> sumSalesGroupByHour(@Param("since") LocalDateTime since);
+
+    // Pedidos del lote cuyo cliente ya tenía otro pedido no cancelado anterior (idx_orders_user_created)
+    @Query("""
+      SELECT o.id
+      FROM OrderModel o
+      WHERE o.id IN :ids
+        AND EXISTS (
+          SELECT 1 FROM OrderModel p
+          WHERE p.usermodel = o.usermodel
+            AND p.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
+            AND p.createdAt < o.createdAt
+        )
+    """)
+    List<Long> findIdsWithEarlierOrder(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+      SELECT COUNT(DISTINCT o.usermodel)
+      FROM OrderModel o
+      WHERE o.createdAt >= :since
+        AND o.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
+    """)
+    long countDistinctBuyersSince(@Param("since") LocalDateTime since);
+
+    @Query("""
+      SELECT COUNT(DISTINCT o.usermodel)
+      FROM OrderModel o
+      WHERE o.createdAt >= :since
+        AND o.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
+        AND EXISTS (
+          SELECT 1 FROM OrderModel p
+          WHERE p.usermodel = o.usermodel
+            AND p.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
+            AND p.createdAt < o.createdAt
+        )
+    """)
+    long countRepeatBuyersSince(@Param("since") LocalDateTime since);
+
+    // Un renglón por monto distinto: alcanza para armar el histograma sin ordenar los pedidos
     @Query("""
-      SELECT FUNCTION('date_format', o.createdAt, '%Y-%m-%d'),
-             COALESCE(SUM(o.total),0)
+      SELECT o.total, COUNT(o)
       FROM OrderModel o
       WHERE o.createdAt >= :since
-      GROUP BY FUNCTION('date_format', o.createdAt, '%Y-%m-%d')
-      ORDER BY 1
+        AND o.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
+      GROUP BY o.total
     """)
-    List<Object[]> sumSalesGroupByDay(@Param("since") LocalDateTime since);
+    List<Object[]> countTicketsByTotalSince(@Param("since") LocalDateTime since);
 
     @Query("""
       SELECT CASE WHEN COUNT(o)>0 THEN SUM(o.total)/COUNT(o) ELSE 0 END
       FROM OrderModel o
       WHERE o.createdAt >= :since
+        AND o.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
     """)
     double avgTicketSince(@Param("since") LocalDateTime since);
 
-}
\ No newline at end of file
+    // Período actual y mismo período del año anterior en un solo recorrido de idx_orders_created
+    @Query("""
+      SELECT COALESCE(SUM(CASE WHEN o.createdAt >= :since THEN o.total ELSE 0 END), 0),
+             COALESCE(SUM(CASE WHEN o.createdAt < :lastYearUntil THEN o.total ELSE 0 END), 0)
+      FROM OrderModel o
+      WHERE o.createdAt >= :lastYearSince
+        AND o.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
+    """)
+    List<Object[]> sumSalesGrowth(@Param("since") LocalDateTime since,
+                                  @Param("lastYearSince") LocalDateTime lastYearSince,
+                                  @Param("lastYearUntil") LocalDateTime lastYearUntil);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<OrderModel> findWithLockById(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+      SELECT o
+      FROM OrderModel o
+      WHERE o.id IN :ids
+        AND o.estado = :estado
+    """)
+    List<OrderModel> findForUpdateByIdInAndEstado(@Param("ids") Collection<Long> ids,
+                                                 @Param("estado") OrderEnum estado);
+
+    // Orden por id: dos lotes que se solapan toman los locks en el mismo orden
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+      SELECT o
+      FROM OrderModel o
+      WHERE o.id IN :ids
+      ORDER BY o.id
+    """)
+    List<OrderModel> findForUpdateByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("""
+      UPDATE OrderModel o
+      SET o.estado = :estado, o.updatedAt = :ahora
+      WHERE o.id IN :ids
+    """)
+    int updateEstadoByIdIn(@Param("ids") Collection<Long> ids,
+                           @Param("estado") OrderEnum estado,
+                           @Param("ahora") LocalDateTime ahora);
+
+    @Query("""
+      SELECT d.productModel.id, SUM(d.cantidad)
+      FROM OrderDetailModel d
+      WHERE d.orderModel.id IN :ids
+      GROUP BY d.productModel.id
+    """)
+    List<Object[]> sumCantidadesByProducto(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+      SELECT o.id, o.updatedAt
+      FROM OrderModel o
+      WHERE o.estado = :estado
+    """)
+    List<Object[]> findIdAndUpdatedAtByEstado(@Param("estado") OrderEnum estado);
+}
@@ -0,0 +1,15 @@
+package com.sweettreats.SweetTreats.repository;
+
+import com.sweettreats.SweetTreats.dto.OrderHeaderDto;
+import com.sweettreats.SweetTreats.dto.OrderSearchFilter;
+import com.sweettreats.SweetTreats.util.OrderCursor;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+
+    // Pedidos más recientes que cumplen el filtro, empezando después del cursor (si hay)
+    List<OrderHeaderDto> searchPage(OrderSearchFilter filter, OrderCursor after, int limit);
+
+    long countMatching(OrderSearchFilter filter);
+}
@@ -0,0 +1,69 @@
+package com.sweettreats.SweetTreats.repository;
+
+import com.sweettreats.SweetTreats.dto.OrderHeaderDto;
+import com.sweettreats.SweetTreats.dto.OrderSearchFilter;
+import com.sweettreats.SweetTreats.model.OrderModel;
+import com.sweettreats.SweetTreats.model.UserModel;
+import com.sweettreats.SweetTreats.util.OrderCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderHeaderDto> searchPage(OrderSearchFilter filter, OrderCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderHeaderDto> query = cb.createQuery(OrderHeaderDto.class);
+        Root<OrderModel> o = query.from(OrderModel.class);
+        Join<OrderModel, UserModel> u = o.join("usermodel");
+
+        List<Predicate> predicados = filtros(cb, o, filter);
+        if (after != null) {
+            Path<LocalDateTime> createdAt = o.get("createdAt");
+            predicados.add(cb.or(
+                    cb.lessThan(createdAt, after.createdAt()),
+                    cb.and(cb.equal(createdAt, after.createdAt()), cb.lessThan(o.get("id"), after.id()))));
+        }
+
+        query.select(cb.construct(OrderHeaderDto.class,
+                        o.get("id"), u.get("id"), u.get("email"), o.get("direccionEnvio"), o.get("metodoPago"),
+                        o.get("total"), o.get("estado"), o.get("createdAt")))
+                .where(predicados.toArray(Predicate[]::new))
+                .orderBy(cb.desc(o.get("createdAt")), cb.desc(o.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long countMatching(OrderSearchFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<OrderModel> o = query.from(OrderModel.class);
+        query.select(cb.count(o)).where(filtros(cb, o, filter).toArray(Predicate[]::new));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private List<Predicate> filtros(CriteriaBuilder cb, Root<OrderModel> o, OrderSearchFilter filter) {
+        List<Predicate> predicados = new ArrayList<>();
+        if (filter.estado() != null) {
+            predicados.add(cb.equal(o.get("estado"), filter.estado()));
+        }
+        if (filter.userId() != null) {
+            predicados.add(cb.equal(o.get("usermodel").get("id"), filter.userId()));
+        }
+        if (filter.desde() != null) {
+            predicados.add(cb.greaterThanOrEqualTo(o.get("createdAt"), filter.desde()));
+        }
+        if (filter.hasta() != null) {
+            predicados.add(cb.lessThan(o.get("createdAt"), filter.hasta()));
+        }
+        return predicados;
+    }
+}
@@ -1,5 +1,6 @@
 package com.sweettreats.SweetTreats.repository;
 
+import com.sweettreats.SweetTreats.dto.ProductPriceDto;
 import com.sweettreats.SweetTreats.dto.ProductStatDto;
 import com.sweettreats.SweetTreats.model.ProductModel;
 import com.sweettreats.SweetTreats.model.Status;
@@ -11,34 +12,43 @@ import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface ProductRepository extends JpaRepository<ProductModel, Long> {
+public interface ProductRepository extends JpaRepository<ProductModel, Long>, ProductRepositoryCustom {
     @Query("""
       SELECT new com.sweettreats.SweetTreats.dto.ProductStatDto(
+        p.id,
         p.nombre,
         SUM(d.cantidad),
         SUM(d.cantidad * d.precioUnitario)
       )
       FROM OrderDetailModel d
+      JOIN d.orderModel o
       JOIN d.productModel p
-      GROUP BY p.nombre
-      ORDER BY SUM(d.cantidad) DESC
+      WHERE o.createdAt >= :since
+        AND o.estado <> com.sweettreats.SweetTreats.model.OrderEnum.CANCELADO
+      GROUP BY p.id, p.nombre
+      ORDER BY SUM(d.cantidad) DESC, p.id
     """)
-    List<ProductStatDto> findTopProducts(Pageable top10);
+    List<ProductStatDto> findTopProductsSince(@Param("since") LocalDateTime since, Pageable top);
 
+    // Rango sobre idx_products_last_sold (IS NULL incluido: nunca vendidos)
     @Query("""
       SELECT p
       FROM ProductModel p
-      WHERE NOT EXISTS (
-        SELECT 1
-        FROM OrderDetailModel d
-        WHERE d.productModel = p
-          AND d.orderModel.createdAt >= :since
-      )
+      WHERE p.lastSoldAt IS NULL
+         OR p.lastSoldAt < :since
     """)
     List<ProductModel> findNoSalesSince(@Param("since") LocalDateTime since);
 
+    @Query("""
+      SELECT new com.sweettreats.SweetTreats.dto.ProductPriceDto(p.id, p.nombre, p.precio)
+      FROM ProductModel p
+      WHERE p.id IN :ids
+    """)
+    List<ProductPriceDto> findPricesByIdIn(@Param("ids") Collection<Long> ids);
+
     // Bajo stock
     List<ProductModel> findByStockLessThan(int threshold);
 
@@ -0,0 +1,23 @@
+package com.sweettreats.SweetTreats.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+
+    // Descuenta stock de forma condicional (stock >= cantidad) en un único batch, y en el
+    // mismo UPDATE suma unidades vendidas y corre last_sold_at hasta vendidoEn.
+    // Devuelve los ids de producto cuyo UPDATE no afectó filas.
+    List<Long> reservarStock(Map<Long, Integer> cantidades, LocalDateTime vendidoEn);
+
+    // Suma las cantidades al stock y las resta de unidades vendidas en un único batch
+    void liberarStock(Map<Long, Integer> cantidades);
+
+    // Suma delta (puede ser negativo) al stock si no queda por debajo de cero; false si no alcanzaba
+    boolean ajustarStock(Long productId, int delta);
+
+    // Recalcula last_sold_at desde los pedidos no cancelados, solo en los productos cuya
+    // última venta registrada es anterior o igual a la fecha indicada (la que se deshizo)
+    void recalcularUltimaVenta(Map<Long, LocalDateTime> hastaPorProducto);
+}
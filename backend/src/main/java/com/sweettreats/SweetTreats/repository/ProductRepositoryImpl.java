@@ -0,0 +1,91 @@
+package com.sweettreats.SweetTreats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    // GREATEST da NULL si last_sold_at es NULL: en ese caso queda vendidoEn
+    private static final String RESERVAR_SQL =
+            "UPDATE products SET stock = stock - ?, unidades_vendidas = unidades_vendidas + ?, " +
+            "last_sold_at = COALESCE(GREATEST(last_sold_at, ?), ?) WHERE id = ? AND stock >= ?";
+
+    private static final String LIBERAR_SQL =
+            "UPDATE products SET stock = stock + ?, unidades_vendidas = unidades_vendidas - ? WHERE id = ?";
+
+    private static final String RECALCULAR_ULTIMA_VENTA_SQL =
+            "UPDATE products p SET p.last_sold_at = (" +
+            "  SELECT MAX(o.created_at) FROM order_details d JOIN orders o ON o.id = d.order_model_id " +
+            "  WHERE d.product_model_id = p.id AND o.estado <> 'CANCELADO') " +
+            "WHERE p.id = ? AND p.last_sold_at <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> reservarStock(Map<Long, Integer> cantidades, LocalDateTime vendidoEn) {
+        if (cantidades.isEmpty()) {
+            return List.of();
+        }
+        // Orden por id para que pedidos concurrentes tomen los locks en el mismo orden
+        List<Map.Entry<Long, Integer>> filas = new ArrayList<>(new TreeMap<>(cantidades).entrySet());
+
+        Timestamp cuando = Timestamp.valueOf(vendidoEn);
+        int[] afectadas = jdbcTemplate.batchUpdate(RESERVAR_SQL, filas, filas.size(), (ps, fila) -> {
+            ps.setInt(1, fila.getValue());
+            ps.setInt(2, fila.getValue());
+            ps.setTimestamp(3, cuando);
+            ps.setTimestamp(4, cuando);
+            ps.setLong(5, fila.getKey());
+            ps.setInt(6, fila.getValue());
+        })[0];
+
+        List<Long> sinStock = new ArrayList<>();
+        for (int i = 0; i < afectadas.length; i++) {
+            if (afectadas[i] == 0) {
+                sinStock.add(filas.get(i).getKey());
+            }
+        }
+        return sinStock;
+    }
+
+    @Override
+    public void liberarStock(Map<Long, Integer> cantidades) {
+        if (cantidades.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> filas = new ArrayList<>(new TreeMap<>(cantidades).entrySet());
+        jdbcTemplate.batchUpdate(LIBERAR_SQL, filas, filas.size(), (ps, fila) -> {
+            ps.setInt(1, fila.getValue());
+            ps.setInt(2, fila.getValue());
+            ps.setLong(3, fila.getKey());
+        });
+    }
+
+    @Override
+    public boolean ajustarStock(Long productId, int delta) {
+        return jdbcTemplate.update("UPDATE products SET stock = stock + ? WHERE id = ? AND stock + ? >= 0",
+                delta, productId, delta) == 1;
+    }
+
+    @Override
+    public void recalcularUltimaVenta(Map<Long, LocalDateTime> hastaPorProducto) {
+        if (hastaPorProducto.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, LocalDateTime>> filas = new ArrayList<>(new TreeMap<>(hastaPorProducto).entrySet());
+        jdbcTemplate.batchUpdate(RECALCULAR_ULTIMA_VENTA_SQL, filas, filas.size(), (ps, fila) -> {
+            ps.setLong(1, fila.getKey());
+            ps.setTimestamp(2, Timestamp.valueOf(fila.getValue()));
+        });
+    }
+}
@@ -1,19 +1,26 @@
 package com.sweettreats.SweetTreats.service;
 
+import com.sweettreats.SweetTreats.dto.BulkStatusResponse;
+import com.sweettreats.SweetTreats.dto.CursorPage;
 import com.sweettreats.SweetTreats.dto.OrderRequest;
 import com.sweettreats.SweetTreats.dto.OrderResponse;
+import com.sweettreats.SweetTreats.dto.OrderSearchFilter;
 import com.sweettreats.SweetTreats.model.OrderEnum;
 import com.sweettreats.SweetTreats.model.UserModel;
 import org.springframework.data.domain.Page;
 
 import org.springframework.data.domain.Pageable;
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderService {
     OrderResponse crearPedido(OrderRequest request, UserModel user);
-    List<OrderResponse> obtenerPedidosDeUsuario(UserModel user);
+    CursorPage<OrderResponse> obtenerPedidosDeUsuario(UserModel user, String cursor, int size);
     OrderResponse obtenerPedidoPorId(UserModel user, Long id);
     Page<OrderResponse> obtenerTodosLosPedidos(Pageable pageable);
+    CursorPage<OrderResponse> buscarPedidosAdmin(OrderSearchFilter filter, String cursor, int size, boolean contar);
     OrderResponse updateOrderStatus(Long id, OrderEnum nuevoEstado);
+    BulkStatusResponse updateOrderStatuses(Collection<Long> ids, OrderEnum nuevoEstado);
     OrderResponse cancelOrderByUser(Long orderId, UserModel user);
+    List<Long> expirarPedidos(Collection<Long> ids);
 }
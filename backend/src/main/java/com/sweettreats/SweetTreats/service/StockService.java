@@ -0,0 +1,19 @@
+package com.sweettreats.SweetTreats.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface StockService {
+    // Reserva todas las cantidades (productId -> unidades) o ninguna. vendidoEn es la fecha
+    // del pedido: con ella se actualizan last_sold_at y las unidades vendidas del producto
+    void reservar(Map<Long, Integer> cantidades, LocalDateTime vendidoEn);
+
+    // Devuelve al stock las unidades de un pedido que ya no se va a entregar y las descuenta
+    // de las vendidas; last_sold_at lo recalcula ProductSalesStats antes del commit
+    void liberar(Map<Long, Integer> cantidades);
+
+    // Se invoca cuando un ADMIN corrige el stock a mano: suma delta (positivo o negativo) al
+    // stock vigente en vez de reemplazarlo, así no se pisan las ventas concurrentes.
+    // Responde 400 si el stock quedaría negativo
+    void ajustar(Long productId, int delta);
+}
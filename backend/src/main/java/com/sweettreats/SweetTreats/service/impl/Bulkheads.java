@@ -0,0 +1,219 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.dto.BulkheadStatsDto;
+import com.sweettreats.SweetTreats.exception.BulkheadLlenoException;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compartimentos de checkout, administración y reportes. Cada uno acota cuántos
+ * requests corren a la vez, cuántos pueden esperar turno y cuánto, cuántas conexiones
+ * del pool puede tener tomadas y el timeout de sus sentencias. Un reporte de un año o un
+ * export grande llena su compartimento y recibe 503 con Retry-After, pero las conexiones
+ * que quedan fuera de reportes y administración siguen libres para el checkout.
+ *
+ * Los límites de conexiones reparten el pool de Hikari: la suma de reportes y
+ * administración tiene que quedar por debajo de spring.datasource.hikari.maximum-pool-size.
+ * Un límite en 0 significa sin límite propio.
+ */
+@Service
+public class Bulkheads {
+
+    public enum Compartimento {
+        CHECKOUT("checkout", 64, 128, 5, 0, 10, 2),
+        ADMIN("admin", 8, 16, 2, 3, 15, 5),
+        REPORTES("reports", 4, 8, 2, 4, 30, 10);
+
+        private final String propiedad;
+        private final int concurrentes;
+        private final int cola;
+        private final Duration espera;
+        private final int conexiones;
+        private final Duration timeoutSentencia;
+        private final int reintentarEn;
+
+        // Valores por defecto; cada uno se puede cambiar con app.bulkhead.<propiedad>.*
+        Compartimento(String propiedad, int concurrentes, int cola, long esperaSegundos,
+                      int conexiones, long timeoutSentenciaSegundos, int reintentarEn) {
+            this.propiedad = propiedad;
+            this.concurrentes = concurrentes;
+            this.cola = cola;
+            this.espera = Duration.ofSeconds(esperaSegundos);
+            this.conexiones = conexiones;
+            this.timeoutSentencia = Duration.ofSeconds(timeoutSentenciaSegundos);
+            this.reintentarEn = reintentarEn;
+        }
+    }
+
+    /** Cupo de ejecución tomado con entrar(); cerrar() lo devuelve una sola vez. */
+    public interface Permiso {
+        void cerrar();
+    }
+
+    @FunctionalInterface
+    public interface Tarea<T, E extends Exception> {
+        T ejecutar() throws E;
+    }
+
+    private static final ThreadLocal<Compartimento> ACTUAL = new ThreadLocal<>();
+
+    private final Map<Compartimento, Estado> estados = new EnumMap<>(Compartimento.class);
+
+    public Bulkheads(Environment env) {
+        for (Compartimento c : Compartimento.values()) {
+            String prefijo = "app.bulkhead." + c.propiedad + ".";
+            estados.put(c, new Estado(
+                    env.getProperty(prefijo + "max-concurrent", Integer.class, c.concurrentes),
+                    env.getProperty(prefijo + "queue", Integer.class, c.cola),
+                    env.getProperty(prefijo + "max-wait", Duration.class, c.espera),
+                    env.getProperty(prefijo + "connections", Integer.class, c.conexiones),
+                    env.getProperty(prefijo + "statement-timeout", Duration.class, c.timeoutSentencia),
+                    env.getProperty(prefijo + "retry-after", Integer.class, c.reintentarEn)));
+        }
+    }
+
+    /**
+     * Toma un cupo de ejecución. Si ya hay maxCola esperando, o no se libera uno dentro
+     * de maxWait, lanza BulkheadLlenoException sin bloquear más.
+     */
+    public Permiso entrar(Compartimento c) {
+        Estado e = estados.get(c);
+        if (!e.ejecucion.tryAcquire()) {
+            if (e.esperando.incrementAndGet() > e.maxCola) {
+                e.esperando.decrementAndGet();
+                throw rechazo(c, e, "Demasiadas solicitudes en curso");
+            }
+            try {
+                if (!e.ejecucion.tryAcquire(e.maxEspera.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw rechazo(c, e, "Demasiadas solicitudes en curso");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw rechazo(c, e, "Solicitud interrumpida");
+            } finally {
+                e.esperando.decrementAndGet();
+            }
+        }
+        AtomicBoolean cerrado = new AtomicBoolean();
+        return () -> {
+            if (cerrado.compareAndSet(false, true)) {
+                e.ejecucion.release();
+            }
+        };
+    }
+
+    /** Corre la tarea con el hilo marcado en el compartimento: sus conexiones y sentencias se acotan. */
+    public <T, E extends Exception> T en(Compartimento c, Tarea<T, E> tarea) throws E {
+        Compartimento anterior = marcar(c);
+        try {
+            return tarea.ejecutar();
+        } finally {
+            restaurar(anterior);
+        }
+    }
+
+    /** Marca el hilo y devuelve el compartimento anterior, para restaurar(). */
+    public Compartimento marcar(Compartimento c) {
+        Compartimento anterior = ACTUAL.get();
+        ACTUAL.set(c);
+        return anterior;
+    }
+
+    public void restaurar(Compartimento anterior) {
+        if (anterior == null) {
+            ACTUAL.remove();
+        } else {
+            ACTUAL.set(anterior);
+        }
+    }
+
+    /** Compartimento del hilo actual, o null fuera de cualquiera (jobs de fondo, arranque). */
+    public Compartimento actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * Reserva una conexión del cupo del compartimento; false si no tiene límite propio.
+     * Con el cupo agotado espera hasta maxWait y después rechaza.
+     */
+    public boolean reservarConexion(Compartimento c) {
+        Estado e = estados.get(c);
+        if (e.conexiones == null) {
+            return false;
+        }
+        try {
+            if (!e.conexiones.tryAcquire(e.maxEspera.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw rechazo(c, e, "Sin conexiones disponibles para " + c.propiedad);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw rechazo(c, e, "Solicitud interrumpida");
+        }
+        return true;
+    }
+
+    public void liberarConexion(Compartimento c) {
+        estados.get(c).conexiones.release();
+    }
+
+    /** Timeout de sentencia en segundos (JDBC no acepta menos); 0 sin timeout. */
+    public int timeoutSentenciaSegundos(Compartimento c) {
+        Duration t = estados.get(c).timeoutSentencia;
+        return t.isZero() ? 0 : (int) Math.max(1, t.toSeconds());
+    }
+
+    private BulkheadLlenoException rechazo(Compartimento c, Estado e, String motivo) {
+        e.rechazos.incrementAndGet();
+        return new BulkheadLlenoException(motivo, e.reintentarEn);
+    }
+
+    public List<BulkheadStatsDto> estadisticas() {
+        List<BulkheadStatsDto> stats = new ArrayList<>();
+        for (Compartimento c : Compartimento.values()) {
+            Estado e = estados.get(c);
+            int enCurso = e.maxConcurrentes - e.ejecucion.availablePermits();
+            int conexiones = e.conexiones != null ? e.maxConexiones - e.conexiones.availablePermits() : 0;
+            double saturacion = Math.max((double) enCurso / e.maxConcurrentes,
+                    e.conexiones != null ? (double) conexiones / e.maxConexiones : 0);
+            stats.add(new BulkheadStatsDto(c.propiedad, enCurso, e.maxConcurrentes, e.esperando.get(), e.maxCola,
+                    conexiones, e.maxConexiones, e.rechazos.get(), saturacion));
+        }
+        return stats;
+    }
+
+    private static final class Estado {
+        final Semaphore ejecucion;
+        final Semaphore conexiones;
+        final int maxConcurrentes;
+        final int maxCola;
+        final int maxConexiones;
+        final Duration maxEspera;
+        final Duration timeoutSentencia;
+        final int reintentarEn;
+        final AtomicInteger esperando = new AtomicInteger();
+        final AtomicLong rechazos = new AtomicLong();
+
+        Estado(int maxConcurrentes, int maxCola, Duration maxEspera, int maxConexiones,
+               Duration timeoutSentencia, int reintentarEn) {
+            this.ejecucion = new Semaphore(maxConcurrentes);
+            this.conexiones = maxConexiones > 0 ? new Semaphore(maxConexiones) : null;
+            this.maxConcurrentes = maxConcurrentes;
+            this.maxCola = maxCola;
+            this.maxConexiones = maxConexiones;
+            this.maxEspera = maxEspera;
+            this.timeoutSentencia = timeoutSentencia;
+            this.reintentarEn = reintentarEn;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.event.SalesDeltaEvent;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import com.sweettreats.SweetTreats.util.HyperLogLog;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Compradores distintos y recurrentes por período sin COUNT(DISTINCT) sobre orders.
+ * Cada día tiene dos HyperLogLog: todos los compradores, y los que hicieron un pedido
+ * que no era su primero. Un período es la unión de sus días, así que cada comprador
+ * cuenta una vez aunque haya comprado varios días.
+ *
+ * Los días cerrados se guardan en daily_buyer_sketch (pocos bytes si hubo pocos
+ * compradores). El día en curso vive en memoria y lo persiste el cierre nocturno. Un
+ * cambio sobre un día cerrado (cancelar o reactivar un pedido viejo) recalcula ese día
+ * desde orders. Lo que no se corrige: si se cancela el primer pedido de un cliente, sus
+ * pedidos de días posteriores siguen contando como recurrentes hasta que esos días se
+ * recalculen.
+ */
+@Service
+public class BuyerSketches {
+
+    private static final Logger log = LoggerFactory.getLogger(BuyerSketches.class);
+
+    private record Dia(HyperLogLog compradores, HyperLogLog recurrentes) {
+        Dia() {
+            this(new HyperLogLog(), new HyperLogLog());
+        }
+
+        void agregar(long userId, boolean recurrente) {
+            compradores.agregar(userId);
+            if (recurrente) {
+                recurrentes.agregar(userId);
+            }
+        }
+
+        void unir(Dia otro) {
+            compradores.unir(otro.compradores);
+            recurrentes.unir(otro.recurrentes);
+        }
+    }
+
+    public record Estimacion(long compradores, long recurrentes) {
+    }
+
+    // Un pedido es recurrente si el cliente tiene otro no cancelado anterior (idx_orders_user_created)
+    private static final String PEDIDOS_SQL =
+            "SELECT DATE(o.created_at), o.usermodel_id, EXISTS (" +
+            "  SELECT 1 FROM orders p WHERE p.usermodel_id = o.usermodel_id " +
+            "  AND p.estado <> 'CANCELADO' AND p.created_at < o.created_at) " +
+            "FROM orders o WHERE o.created_at >= ? AND o.created_at < ? AND o.estado <> 'CANCELADO'";
+
+    private static final String GUARDAR_SQL =
+            "INSERT INTO daily_buyer_sketch (dia, compradores, recurrentes) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE compradores = VALUES(compradores), recurrentes = VALUES(recurrentes)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderRepository orderRepository;
+    private final boolean habilitado;
+
+    private final TreeMap<LocalDate, Dia> porDia = new TreeMap<>();
+    private final Map<LocalDate, Dia> ventanas = new HashMap<>();
+    private LocalDate hoy;
+
+    private volatile boolean disponible;
+
+    public BuyerSketches(JdbcTemplate jdbcTemplate,
+                         OrderRepository orderRepository,
+                         @Value("${app.reports.buyers.enabled:true}") boolean habilitado) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderRepository = orderRepository;
+        this.habilitado = habilitado;
+    }
+
+    // Como el SalesCube: antes de aceptar pedidos, así ningún delta se cruza con la carga
+    @PostConstruct
+    public synchronized void cargar() {
+        if (!habilitado) {
+            return;
+        }
+        hoy = LocalDate.now();
+        jdbcTemplate.query("SELECT dia, compradores, recurrentes FROM daily_buyer_sketch", rs -> {
+            porDia.put(rs.getDate(1).toLocalDate(),
+                    new Dia(HyperLogLog.deBytes(rs.getBytes(2)), HyperLogLog.deBytes(rs.getBytes(3))));
+        });
+
+        // Lo que falta persistir: desde el último día guardado (o el primer pedido) hasta ayer
+        LocalDate desde;
+        if (!porDia.isEmpty()) {
+            desde = porDia.lastKey().plusDays(1);
+        } else {
+            Timestamp primero = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM orders", Timestamp.class);
+            desde = primero != null ? primero.toLocalDateTime().toLocalDate() : hoy;
+        }
+        Map<LocalDate, Dia> calculados = calcular(desde, hoy.plusDays(1));
+        calculados.forEach((dia, sketches) -> {
+            if (dia.isBefore(hoy)) {
+                guardar(dia, sketches);
+            }
+        });
+        porDia.putAll(calculados);
+        disponible = true;
+        log.info("BuyerSketches cargado: {} días ({} calculados al arrancar)", porDia.size(), calculados.size());
+    }
+
+    public boolean disponible() {
+        return disponible;
+    }
+
+    // Persiste el día anterior recalculado desde orders, con las cancelaciones ya aplicadas
+    @Scheduled(cron = "${app.reports.buyers.cron:0 10 0 * * *}")
+    public synchronized void cerrarDia() {
+        if (!disponible) {
+            return;
+        }
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        recalcular(ayer, ayer.plusDays(1));
+    }
+
+    // Antes que ReportCache, igual que el cubo
+    @EventListener
+    @Order(0)
+    public synchronized void onSalesDelta(SalesDeltaEvent event) {
+        if (!disponible) {
+            return;
+        }
+        LocalDate actual = LocalDate.now();
+        List<SalesDeltaEvent.Venta> nuevas = new ArrayList<>();
+        TreeSet<LocalDate> pasados = new TreeSet<>();
+        for (SalesDeltaEvent.Venta v : event.ventas()) {
+            LocalDate dia = v.createdAt().toLocalDate();
+            if (v.signo() > 0 && !dia.isBefore(actual)) {
+                nuevas.add(v);
+            } else {
+                // Un HyperLogLog no resta: el día se rehace desde orders
+                pasados.add(dia);
+            }
+        }
+        if (!nuevas.isEmpty()) {
+            Set<Long> recurrentes = new HashSet<>(orderRepository.findIdsWithEarlierOrder(
+                    nuevas.stream().map(SalesDeltaEvent.Venta::orderId).toList()));
+            for (SalesDeltaEvent.Venta v : nuevas) {
+                boolean recurrente = recurrentes.contains(v.orderId());
+                LocalDate dia = v.createdAt().toLocalDate();
+                porDia.computeIfAbsent(dia, d -> new Dia()).agregar(v.userId(), recurrente);
+                ventanas.forEach((desde, ventana) -> {
+                    if (!dia.isBefore(desde)) {
+                        ventana.agregar(v.userId(), recurrente);
+                    }
+                });
+            }
+        }
+        for (LocalDate dia : pasados) {
+            recalcular(dia, dia.plusDays(1));
+        }
+    }
+
+    /** Compradores y recurrentes distintos desde el día indicado hasta hoy. */
+    public synchronized Estimacion desde(LocalDate desde) {
+        LocalDate actual = LocalDate.now();
+        if (!actual.equals(hoy)) {
+            ventanas.clear();
+            hoy = actual;
+        }
+        Dia ventana = ventanas.computeIfAbsent(desde, d -> {
+            Dia union = new Dia();
+            porDia.tailMap(d).values().forEach(union::unir);
+            return union;
+        });
+        return new Estimacion(ventana.compradores().estimar(), ventana.recurrentes().estimar());
+    }
+
+    private void recalcular(LocalDate desde, LocalDate hasta) {
+        Map<LocalDate, Dia> calculados = calcular(desde, hasta);
+        LocalDate actual = LocalDate.now();
+        for (LocalDate dia = desde; dia.isBefore(hasta); dia = dia.plusDays(1)) {
+            Dia sketches = calculados.getOrDefault(dia, new Dia());
+            porDia.put(dia, sketches);
+            if (dia.isBefore(actual)) {
+                guardar(dia, sketches);
+            }
+        }
+        ventanas.clear();
+    }
+
+    private Map<LocalDate, Dia> calcular(LocalDate desde, LocalDate hasta) {
+        Map<LocalDate, Dia> dias = new TreeMap<>();
+        jdbcTemplate.query(PEDIDOS_SQL,
+                rs -> {
+                    dias.computeIfAbsent(rs.getDate(1).toLocalDate(), d -> new Dia())
+                            .agregar(rs.getLong(2), rs.getBoolean(3));
+                },
+                Timestamp.valueOf(desde.atStartOfDay()), Timestamp.valueOf(hasta.atStartOfDay()));
+        return dias;
+    }
+
+    private void guardar(LocalDate dia, Dia sketches) {
+        jdbcTemplate.update(GUARDAR_SQL, Date.valueOf(dia),
+                sketches.compradores().aBytes(), sketches.recurrentes().aBytes());
+    }
+}
@@ -0,0 +1,200 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.event.OrderChangedEvent;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Tabla daily_sales_rollup: una fila por día cerrado con suma, cantidad, mínimo y
+ * máximo de los pedidos no cancelados. Los reportes leen los días anteriores de acá y
+ * solo escanean los pedidos de hoy, así el costo no crece con el historial.
+ *
+ * El día en curso no se escribe con cada pedido (sería una fila caliente que serializa
+ * todos los commits): lo cierra el job de medianoche. Los cambios que tocan días ya
+ * cerrados (cancelar o reactivar un pedido viejo, o uno confirmado justo después de
+ * medianoche) recalculan ese día dentro de la misma transacción.
+ */
+@Service
+public class DailySalesRollup {
+
+    private static final Logger log = LoggerFactory.getLogger(DailySalesRollup.class);
+
+    public record Resumen(BigDecimal total, long pedidos) {
+    }
+
+    private static final String RECALCULAR_SQL =
+            "INSERT INTO daily_sales_rollup (dia, total, pedidos, min_total, max_total) " +
+            "SELECT dia, SUM(total), COUNT(*), MIN(total), MAX(total) FROM orders " +
+            "WHERE dia >= ? AND dia < ? AND estado <> 'CANCELADO' " +
+            "GROUP BY dia";
+
+    private static final int DIAS_POR_LOTE = 31;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Último día cerrado incluido en la tabla; null hasta que termina el backfill inicial
+    private volatile LocalDate cerradoHasta;
+
+    // OrderRepository asegura que el esquema ya fue generado por Hibernate
+    public DailySalesRollup(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            OrderRepository orderRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        LocalDate hoy = LocalDate.now();
+        Date ultimo = jdbcTemplate.queryForObject("SELECT MAX(dia) FROM daily_sales_rollup", Date.class);
+        LocalDate desde;
+        if (ultimo != null) {
+            // El último día se rehace por si el proceso cayó a mitad del cierre
+            desde = ultimo.toLocalDate();
+        } else {
+            Timestamp primero = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM orders", Timestamp.class);
+            desde = primero != null ? primero.toLocalDateTime().toLocalDate() : hoy;
+        }
+        for (LocalDate d = desde; d.isBefore(hoy); d = d.plusDays(DIAS_POR_LOTE)) {
+            LocalDate hasta = d.plusDays(DIAS_POR_LOTE).isBefore(hoy) ? d.plusDays(DIAS_POR_LOTE) : hoy;
+            reconstruir(d, hasta);
+        }
+        cerradoHasta = hoy.minusDays(1);
+        log.info("daily_sales_rollup al día desde {} hasta {}", desde, cerradoHasta);
+    }
+
+    // Cierra el día anterior; también cubre días perdidos si el proceso estuvo caído
+    @Scheduled(cron = "${app.reports.rollup.cron:0 5 0 * * *}")
+    public void cerrarDia() {
+        LocalDate hoy = LocalDate.now();
+        LocalDate desde = cerradoHasta != null ? cerradoHasta : hoy.minusDays(1);
+        reconstruir(desde, hoy);
+        cerradoHasta = hoy.minusDays(1);
+    }
+
+    /** Recalcula los días [desde, hasta) desde orders, reemplazando lo que hubiera. */
+    public void reconstruir(LocalDate desde, LocalDate hasta) {
+        transactionTemplate.executeWithoutResult(status -> recalcular(desde, hasta));
+    }
+
+    private void recalcular(LocalDate desde, LocalDate hasta) {
+        jdbcTemplate.update("DELETE FROM daily_sales_rollup WHERE dia >= ? AND dia < ?",
+                Date.valueOf(desde), Date.valueOf(hasta));
+        jdbcTemplate.update(RECALCULAR_SQL, Date.valueOf(desde), Date.valueOf(hasta));
+    }
+
+    /** false mientras corre el backfill inicial: los reportes usan las consultas sobre orders. */
+    public boolean disponible() {
+        return cerradoHasta != null;
+    }
+
+    /** Suma y cantidad de pedidos desde el día indicado hasta ahora. */
+    public Resumen resumenDesde(LocalDate desde) {
+        LocalDate abierto = primerDiaAbierto();
+        Resumen cerrado = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(total), 0), COALESCE(SUM(pedidos), 0) FROM daily_sales_rollup " +
+                "WHERE dia >= ? AND dia < ?",
+                (rs, i) -> new Resumen(rs.getBigDecimal(1), rs.getLong(2)),
+                Date.valueOf(desde), Date.valueOf(abierto));
+        LocalDate inicio = desde.isAfter(abierto) ? desde : abierto;
+        Resumen reciente = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(total), 0), COUNT(*) FROM orders WHERE created_at >= ? AND estado <> 'CANCELADO'",
+                (rs, i) -> new Resumen(rs.getBigDecimal(1), rs.getLong(2)),
+                Timestamp.valueOf(inicio.atStartOfDay()));
+        return new Resumen(cerrado.total().add(reciente.total()), cerrado.pedidos() + reciente.pedidos());
+    }
+
+    /** Ventas por día desde el día indicado, en orden cronológico; solo días con ventas. */
+    public Map<LocalDate, BigDecimal> ventasPorDia(LocalDate desde) {
+        LocalDate abierto = primerDiaAbierto();
+        Map<LocalDate, BigDecimal> dias = new TreeMap<>();
+        jdbcTemplate.query(
+                "SELECT dia, total FROM daily_sales_rollup WHERE dia >= ? AND dia < ? ORDER BY dia",
+                rs -> {
+                    dias.put(rs.getDate(1).toLocalDate(), rs.getBigDecimal(2));
+                },
+                Date.valueOf(desde), Date.valueOf(abierto));
+        LocalDate inicio = desde.isAfter(abierto) ? desde : abierto;
+        jdbcTemplate.query(
+                "SELECT dia, SUM(total) FROM orders WHERE dia >= ? AND estado <> 'CANCELADO' GROUP BY dia",
+                rs -> {
+                    dias.put(rs.getDate(1).toLocalDate(), rs.getBigDecimal(2));
+                },
+                Date.valueOf(inicio));
+        return dias;
+    }
+
+    // Lo que todavía no está en la tabla (hoy, y ayer hasta que corre el cierre) se
+    // escanea de orders por idx_orders_dia: como mucho un par de días de pedidos
+    private LocalDate primerDiaAbierto() {
+        LocalDate cerrado = cerradoHasta;
+        return cerrado != null ? cerrado.plusDays(1) : LocalDate.now();
+    }
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.signoVenta() == 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        // Solo días que ya están en la tabla; los abiertos se leen de orders.
+        // Durante el backfill se recalcula cualquier día pasado: es idempotente
+        LocalDate dia = event.createdAt().toLocalDate();
+        LocalDate cerrado = cerradoHasta;
+        if (!dia.isBefore(LocalDate.now()) || (cerrado != null && dia.isAfter(cerrado))) {
+            return;
+        }
+        diasPendientes().add(dia);
+    }
+
+    // Días cerrados tocados por la transacción actual; se recalculan una vez, antes del commit
+    @SuppressWarnings("unchecked")
+    private Set<LocalDate> diasPendientes() {
+        Set<LocalDate> dias = (Set<LocalDate>) TransactionSynchronizationManager.getResource(this);
+        if (dias == null) {
+            Set<LocalDate> nuevos = new TreeSet<>();
+            TransactionSynchronizationManager.bindResource(this, nuevos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Los cambios de estado pueden seguir solo en el contexto de persistencia
+                    entityManager.flush();
+                    for (LocalDate dia : nuevos) {
+                        recalcular(dia, dia.plusDays(1));
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DailySalesRollup.this);
+                }
+            });
+            dias = nuevos;
+        }
+        return dias;
+    }
+}
@@ -0,0 +1,59 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.repository.ProductRepository;
+import com.sweettreats.SweetTreats.service.StockService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@ConditionalOnProperty(name = "app.stock.ledger.enabled", havingValue = "false", matchIfMissing = true)
+public class DatabaseStockServiceImpl implements StockService {
+
+    private final ProductRepository productRepository;
+
+    public DatabaseStockServiceImpl(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    public void reservar(Map<Long, Integer> cantidades, LocalDateTime vendidoEn) {
+        List<Long> sinStock = productRepository.reservarStock(cantidades, vendidoEn);
+        if (!sinStock.isEmpty()) {
+            // Devuelve lo que sí se descontó, para no depender del rollback cuando la
+            // transacción es compartida con otros pedidos (group-commit)
+            Map<Long, Integer> descontadas = new HashMap<>(cantidades);
+            sinStock.forEach(descontadas::remove);
+            productRepository.liberarStock(descontadas);
+            Map<Long, LocalDateTime> hasta = new HashMap<>();
+            descontadas.keySet().forEach(id -> hasta.put(id, vendidoEn));
+            productRepository.recalcularUltimaVenta(hasta);
+
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Stock insuficiente para producto " + sinStock.get(0)
+            );
+        }
+    }
+
+    @Override
+    public void liberar(Map<Long, Integer> cantidades) {
+        productRepository.liberarStock(cantidades);
+    }
+
+    @Override
+    public void ajustar(Long productId, int delta) {
+        if (!productRepository.ajustarStock(productId, delta)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "El stock del producto " + productId + " no puede quedar negativo"
+            );
+        }
+    }
+}
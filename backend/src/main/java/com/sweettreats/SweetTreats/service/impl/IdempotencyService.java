@@ -0,0 +1,286 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweettreats.SweetTreats.model.IdempotencyEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Soporte de Idempotency-Key: la primera ejecución de una clave guarda su respuesta y
+ * los reintentos la reciben sin volver a ejecutar la acción. Un caché en memoria
+ * acotado (LRU con TTL) resuelve los reintentos y los duplicados concurrentes de esta
+ * instancia, que esperan a la ejecución en curso; la tabla idempotency_keys reclama la
+ * clave entre instancias y conserva la respuesta después de un reinicio.
+ * Las ejecuciones que fallan no se guardan: el cliente puede reintentar con la misma clave.
+ * Una reclamación que quedó EN_CURSO (caída o error al guardar la respuesta después del
+ * commit del pedido) nunca se vuelve a ejecutar antes de vencer: no se sabe si la acción
+ * se confirmó, así que responde 409 y el cliente tiene que consultar sus pedidos.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_CLAVE = 64;
+
+    private static final String RECLAMAR_SQL =
+            "INSERT INTO idempotency_keys (scope, user_id, clave, huella, estado, created_at, expires_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    public record Resultado<T>(T valor, boolean repetido) {
+    }
+
+    private record Entrada(String huella, CompletableFuture<Object> respuesta, long expiraEn) {
+    }
+
+    private record Fila(Long id, String huella, IdempotencyEnum estado, String respuesta,
+                        LocalDateTime createdAt, LocalDateTime expiresAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate nuevaTransaccion;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lease;
+    private final long esperaMillis;
+    private final Map<String, Entrada> cache;
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${app.idempotency.ttl-hours:24}") long ttlHoras,
+                              @Value("${app.idempotency.lease-ms:60000}") long leaseMillis,
+                              @Value("${app.idempotency.wait-ms:15000}") long esperaMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHoras);
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.esperaMillis = esperaMillis;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Ejecuta la acción una sola vez por (scope, usuario, clave). Un reintento con el mismo
+     * cuerpo devuelve la respuesta guardada; con otro cuerpo responde 422. Si la clave está
+     * en curso en otra instancia responde 409.
+     */
+    public <T> Resultado<T> ejecutar(String scope, Long userId, String clave, Object cuerpo,
+                                     Class<T> tipo, Supplier<T> accion) {
+        if (clave == null || clave.isBlank() || clave.length() > MAX_CLAVE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key debe tener entre 1 y " + MAX_CLAVE + " caracteres");
+        }
+        String huella = huella(cuerpo);
+        String id = scope + ':' + userId + ':' + clave;
+        long ahora = System.currentTimeMillis();
+
+        Entrada propia;
+        synchronized (cache) {
+            Entrada existente = cache.get(id);
+            if (existente != null && existente.expiraEn() < ahora && existente.respuesta().isDone()) {
+                cache.remove(id);
+                existente = null;
+            }
+            if (existente != null) {
+                verificarHuella(existente.huella(), huella);
+                return new Resultado<>(esperar(existente.respuesta(), tipo), true);
+            }
+            propia = new Entrada(huella, new CompletableFuture<>(), ahora + ttl.toMillis());
+            cache.put(id, propia);
+        }
+
+        boolean reclamada = false;
+        try {
+            Optional<T> guardada = reclamar(scope, userId, clave, huella, tipo);
+            if (guardada.isPresent()) {
+                propia.respuesta().complete(guardada.get());
+                return new Resultado<>(guardada.get(), true);
+            }
+            reclamada = true;
+
+            T valor = accion.get();
+            completar(scope, userId, clave, valor);
+            propia.respuesta().complete(valor);
+            return new Resultado<>(valor, false);
+        } catch (RuntimeException e) {
+            synchronized (cache) {
+                cache.remove(id, propia);
+            }
+            propia.respuesta().completeExceptionally(e);
+            if (reclamada) {
+                liberar(scope, userId, clave);
+            }
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-ms:3600000}")
+    public void purgar() {
+        int borradas = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ?",
+                Timestamp.valueOf(LocalDateTime.now()));
+        long ahora = System.currentTimeMillis();
+        synchronized (cache) {
+            cache.values().removeIf(e -> e.expiraEn() < ahora && e.respuesta().isDone());
+        }
+        if (borradas > 0) {
+            log.debug("Idempotency-Keys vencidas eliminadas: {}", borradas);
+        }
+    }
+
+    // Devuelve la respuesta guardada si la clave ya se completó; vacío si esta llamada la reclamó
+    private <T> Optional<T> reclamar(String scope, Long userId, String clave, String huella, Class<T> tipo) {
+        LocalDateTime ahora = LocalDateTime.now();
+        try {
+            nuevaTransaccion.executeWithoutResult(status -> jdbcTemplate.update(RECLAMAR_SQL,
+                    scope, userId, clave, huella, IdempotencyEnum.EN_CURSO.name(),
+                    Timestamp.valueOf(ahora), Timestamp.valueOf(ahora.plus(ttl))));
+            return Optional.empty();
+        } catch (DuplicateKeyException e) {
+            // Ya existe: completada, en curso en otra instancia, vencida o abandonada
+        }
+
+        Fila fila = leer(scope, userId, clave).orElseThrow(() -> new ResponseStatusException(
+                HttpStatus.CONFLICT, "Hay una solicitud en curso con esta Idempotency-Key"));
+        boolean vencida = fila.expiresAt().isBefore(ahora);
+        if (!vencida) {
+            verificarHuella(fila.huella(), huella);
+            if (fila.estado() == IdempotencyEnum.COMPLETADO) {
+                return Optional.of(leerRespuesta(fila.respuesta(), tipo));
+            }
+        }
+
+        // Una reclamación EN_CURSO más vieja que el lease quedó huérfana, pero el pedido pudo
+        // haberse confirmado antes de la caída: reejecutarla podría duplicarlo
+        if (!vencida) {
+            boolean abandonada = fila.createdAt().plus(lease).isBefore(ahora);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, abandonada
+                    ? "La solicitud con esta Idempotency-Key no terminó de confirmarse; revisá tus pedidos antes de reintentar con otra clave"
+                    : "Hay una solicitud en curso con esta Idempotency-Key");
+        }
+        int tomadas = nuevaTransaccion.execute(status -> jdbcTemplate.update(
+                "UPDATE idempotency_keys SET huella = ?, estado = ?, respuesta = NULL, created_at = ?, expires_at = ? " +
+                "WHERE id = ? AND created_at = ?",
+                huella, IdempotencyEnum.EN_CURSO.name(), Timestamp.valueOf(ahora),
+                Timestamp.valueOf(ahora.plus(ttl)), fila.id(), Timestamp.valueOf(fila.createdAt())));
+        if (tomadas == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Hay una solicitud en curso con esta Idempotency-Key");
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Fila> leer(String scope, Long userId, String clave) {
+        List<Fila> filas = jdbcTemplate.query(
+                "SELECT id, huella, estado, respuesta, created_at, expires_at FROM idempotency_keys " +
+                "WHERE scope = ? AND user_id = ? AND clave = ?",
+                (rs, i) -> new Fila(
+                        rs.getLong("id"),
+                        rs.getString("huella"),
+                        IdempotencyEnum.valueOf(rs.getString("estado")),
+                        rs.getString("respuesta"),
+                        rs.getTimestamp("created_at").toLocalDateTime(),
+                        rs.getTimestamp("expires_at").toLocalDateTime()),
+                scope, userId, clave);
+        return filas.stream().findFirst();
+    }
+
+    // Nunca lanza: la acción ya se confirmó y liberar la clave permitiría ejecutarla de nuevo.
+    // Si falla, el caché local cubre los reintentos y en la base la clave queda EN_CURSO (409)
+    private void completar(String scope, Long userId, String clave, Object valor) {
+        try {
+            String json = objectMapper.writeValueAsString(valor);
+            nuevaTransaccion.executeWithoutResult(status -> jdbcTemplate.update(
+                    "UPDATE idempotency_keys SET estado = ?, respuesta = ? WHERE scope = ? AND user_id = ? AND clave = ?",
+                    IdempotencyEnum.COMPLETADO.name(), json, scope, userId, clave));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("No se pudo guardar la respuesta de la Idempotency-Key {}:{}", scope, clave, e);
+        }
+    }
+
+    private void liberar(String scope, Long userId, String clave) {
+        try {
+            nuevaTransaccion.executeWithoutResult(status -> jdbcTemplate.update(
+                    "DELETE FROM idempotency_keys WHERE scope = ? AND user_id = ? AND clave = ? AND estado = ?",
+                    scope, userId, clave, IdempotencyEnum.EN_CURSO.name()));
+        } catch (RuntimeException e) {
+            log.warn("No se pudo liberar la Idempotency-Key {}:{}", scope, clave, e);
+        }
+    }
+
+    private <T> T esperar(CompletableFuture<Object> respuesta, Class<T> tipo) {
+        try {
+            return tipo.cast(respuesta.get(esperaMillis, TimeUnit.MILLISECONDS));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Hay una solicitud en curso con esta Idempotency-Key");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Solicitud interrumpida");
+        }
+    }
+
+    private <T> T leerRespuesta(String json, Class<T> tipo) {
+        try {
+            return objectMapper.readValue(json, tipo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Respuesta idempotente ilegible", e);
+        }
+    }
+
+    private void verificarHuella(String guardada, String recibida) {
+        if (!guardada.equals(recibida)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "La Idempotency-Key ya se usó con otra solicitud");
+        }
+    }
+
+    private String huella(Object cuerpo) {
+        try {
+            byte[] json = objectMapper.writeValueAsString(cuerpo).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo calcular la huella de la solicitud", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Completa orders.dia y orders.hora en los pedidos anteriores a esas columnas; los nuevos
+ * los trae OrderModel.prePersist. Corre una sola vez, por lotes para no tomar locks sobre
+ * toda la tabla, y antes de que DailySalesRollup y los reportes empiecen a agrupar por dia.
+ */
+@Service
+public class OrderBucketBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderBucketBackfill.class);
+
+    private static final int LOTE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // OrderRepository asegura que el esquema ya fue generado por Hibernate
+    public OrderBucketBackfill(JdbcTemplate jdbcTemplate, OrderRepository orderRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void backfill() {
+        long total = 0;
+        int actualizados;
+        do {
+            actualizados = jdbcTemplate.update(
+                    "UPDATE orders SET dia = DATE(created_at), " +
+                    "hora = DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00') " +
+                    "WHERE dia IS NULL LIMIT " + LOTE);
+            total += actualizados;
+        } while (actualizados == LOTE);
+        if (total > 0) {
+            log.info("dia y hora completados en {} pedidos", total);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.event.OrderChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Difunde por SSE los pedidos creados y los cambios de estado, después del commit.
+ * Cada suscriptor tiene un buffer acotado; si el cliente no da abasto y se llena, lo
+ * pendiente se reemplaza por un "reset" para que recargue la lista en vez de perder
+ * eventos sin enterarse. Un pool chico de hilos hace los envíos para que el hilo que
+ * confirmó el pedido nunca espere a un cliente lento. Un historial global de los
+ * últimos eventos permite retomar con Last-Event-ID; si el hueco ya no está en el
+ * historial se manda "reset" y el cliente recarga la lista.
+ */
+@Service
+public class OrderEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderEventBroadcaster.class);
+
+    public static final String CREADO = "order-created";
+    public static final String CAMBIO_ESTADO = "status-changed";
+    public static final String RESET = "reset";
+
+    private record Evento(long id, String tipo, OrderChangedEvent pedido) {
+    }
+
+    private static final Evento LATIDO = new Evento(0, null, null);
+
+    private final List<Suscriptor> suscriptores = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<Evento> historial = new ArrayDeque<>();
+    private final ExecutorService envios;
+    private final int capacidad;
+    private final int maxHistorial;
+    private final int maxSuscriptores;
+    private final long timeoutMillis;
+
+    // Los ids arrancan en el reloj de inicio: tras un reinicio no se repiten y un
+    // Last-Event-ID viejo cae antes del historial, lo que fuerza un reset
+    private long secuencia = System.currentTimeMillis() * 1000;
+
+    public OrderEventBroadcaster(@Value("${app.orders.stream.buffer:256}") int capacidad,
+                                 @Value("${app.orders.stream.history:1024}") int maxHistorial,
+                                 @Value("${app.orders.stream.max-subscribers:200}") int maxSuscriptores,
+                                 @Value("${app.orders.stream.timeout-ms:1800000}") long timeoutMillis,
+                                 @Value("${app.orders.stream.sender-threads:4}") int hilos) {
+        this.capacidad = capacidad;
+        this.maxHistorial = maxHistorial;
+        this.maxSuscriptores = maxSuscriptores;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger n = new AtomicInteger();
+        // Cola sin límite a propósito: cada suscriptor tiene como mucho un drenado pendiente
+        this.envios = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "order-stream-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public SseEmitter suscribir(String lastEventId) {
+        if (suscriptores.size() >= maxSuscriptores) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Demasiadas suscripciones abiertas");
+        }
+        Long desde = parsearId(lastEventId);
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Suscriptor s = new Suscriptor(emitter);
+        emitter.onCompletion(s::cerrar);
+        emitter.onTimeout(s::cerrar);
+        emitter.onError(e -> s.cerrar());
+
+        // Registro y repetición bajo el mismo lock que publicar(): ni huecos ni duplicados
+        synchronized (historial) {
+            if (desde != null) {
+                Evento primero = historial.peekFirst();
+                boolean cubierto = desde == secuencia
+                        || (primero != null && desde >= primero.id() - 1 && desde < secuencia);
+                long pendientes = historial.stream().filter(e -> e.id() > desde).count();
+                if (!cubierto || pendientes > capacidad) {
+                    s.encolar(new Evento(secuencia, RESET, null));
+                } else {
+                    historial.stream().filter(e -> e.id() > desde).forEach(s::encolar);
+                }
+            }
+            suscriptores.add(s);
+        }
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void alConfirmar(OrderChangedEvent cambio) {
+        publicar(cambio);
+    }
+
+    void publicar(OrderChangedEvent cambio) {
+        synchronized (historial) {
+            Evento evento = new Evento(++secuencia, cambio.esCreacion() ? CREADO : CAMBIO_ESTADO, cambio);
+            if (historial.size() == maxHistorial) {
+                historial.pollFirst();
+            }
+            historial.addLast(evento);
+            for (Suscriptor s : suscriptores) {
+                s.encolar(evento);
+            }
+        }
+    }
+
+    // Comentario periódico: mantiene viva la conexión en proxies y detecta clientes caídos
+    @Scheduled(fixedDelayString = "${app.orders.stream.heartbeat-ms:15000}")
+    public void latido() {
+        for (Suscriptor s : suscriptores) {
+            s.latir();
+        }
+    }
+
+    public int suscripcionesAbiertas() {
+        return suscriptores.size();
+    }
+
+    @PreDestroy
+    public void detener() {
+        for (Suscriptor s : suscriptores) {
+            s.emitter.complete();
+        }
+        envios.shutdownNow();
+    }
+
+    private Long parsearId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private final class Suscriptor {
+        private final SseEmitter emitter;
+        private final ArrayDeque<Evento> pendientes = new ArrayDeque<>();
+        private final AtomicBoolean programado = new AtomicBoolean();
+        private volatile boolean cerrado;
+        private long descartados;
+
+        Suscriptor(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void encolar(Evento evento) {
+            if (cerrado) {
+                return;
+            }
+            synchronized (pendientes) {
+                if (pendientes.size() == capacidad) {
+                    // Como un Last-Event-ID fuera del historial: el cliente recarga y sigue desde acá
+                    descartados += pendientes.size() + 1;
+                    pendientes.clear();
+                    pendientes.addLast(new Evento(evento.id(), RESET, null));
+                } else {
+                    pendientes.addLast(evento);
+                }
+            }
+            programar();
+        }
+
+        void latir() {
+            synchronized (pendientes) {
+                if (!pendientes.isEmpty()) {
+                    return;
+                }
+                pendientes.addLast(LATIDO);
+            }
+            programar();
+        }
+
+        private void programar() {
+            if (!cerrado && programado.compareAndSet(false, true)) {
+                envios.execute(this::drenar);
+            }
+        }
+
+        // Un solo drenado por suscriptor a la vez, así los envíos salen en orden
+        private void drenar() {
+            try {
+                Evento evento;
+                while (!cerrado && (evento = siguiente()) != null) {
+                    enviar(evento);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Suscriptor SSE desconectado: {}", e.getMessage());
+                cerrar();
+                emitter.completeWithError(e);
+            } finally {
+                programado.set(false);
+            }
+            boolean quedan;
+            synchronized (pendientes) {
+                quedan = !pendientes.isEmpty();
+            }
+            if (quedan) {
+                programar();
+            }
+        }
+
+        private Evento siguiente() {
+            synchronized (pendientes) {
+                return pendientes.pollFirst();
+            }
+        }
+
+        private void enviar(Evento evento) throws IOException {
+            if (evento == LATIDO) {
+                emitter.send(SseEmitter.event().comment("keepalive"));
+                return;
+            }
+            SseEmitter.SseEventBuilder builder = SseEmitter.event()
+                    .id(Long.toString(evento.id()))
+                    .name(evento.tipo());
+            if (evento.pedido() != null) {
+                builder.data(evento.pedido(), MediaType.APPLICATION_JSON);
+            } else {
+                builder.data("");
+            }
+            emitter.send(builder);
+        }
+
+        void cerrar() {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            suscriptores.remove(this);
+            if (descartados > 0) {
+                log.debug("Suscriptor SSE cerrado con {} eventos descartados", descartados);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.dto.OrderRequest;
+import com.sweettreats.SweetTreats.dto.OrderResponse;
+import com.sweettreats.SweetTreats.model.UserModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Group-commit de pedidos: los POST /api/orders concurrentes se encolan y un único
+ * hilo escritor los drena en micro-lotes (hasta max-batch pedidos o max-wait-ms de
+ * espera), cada lote en una sola transacción. Así el costo del commit/fsync se reparte
+ * entre todos los pedidos del lote. Un error de negocio (producto inexistente, stock
+ * insuficiente) solo falla el pedido que lo causó.
+ *
+ * Cada solicitud la reclama una sola vez quien llegue primero: el escritor antes de
+ * registrarla o el hilo HTTP al vencer su espera. Si la reclama el HTTP, el escritor la
+ * descarta y el 503 es cierto; si ya la tomó el escritor, el HTTP espera su resultado.
+ */
+@Service
+@ConditionalOnProperty(name = "app.orders.group-commit.enabled", havingValue = "true")
+public class OrderIngestionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIngestionPipeline.class);
+
+    private record Solicitud(OrderRequest request, UserModel user, CompletableFuture<OrderResponse> resultado,
+                             AtomicBoolean reclamada) {
+    }
+
+    private final OrderServiceImpl orderService;
+    private final Bulkheads bulkheads;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Solicitud> cola;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final long timeoutMillis;
+
+    private volatile boolean activo = true;
+    private Thread escritor;
+
+    public OrderIngestionPipeline(OrderServiceImpl orderService,
+                                  Bulkheads bulkheads,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.orders.group-commit.queue-capacity:1024}") int capacidad,
+                                  @Value("${app.orders.group-commit.max-batch:64}") int maxBatch,
+                                  @Value("${app.orders.group-commit.max-wait-ms:5}") long maxWaitMillis,
+                                  @Value("${app.orders.group-commit.timeout-ms:10000}") long timeoutMillis) {
+        this.orderService = orderService;
+        this.bulkheads = bulkheads;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        // El escritor hace las transacciones de los pedidos: timeout de sentencia del checkout
+        escritor = new Thread(() -> bulkheads.en(Bulkheads.Compartimento.CHECKOUT, () -> {
+            drenar();
+            return null;
+        }), "order-group-commit");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        activo = false;
+        escritor.interrupt();
+        escritor.join(timeoutMillis);
+        Solicitud s;
+        while ((s = cola.poll()) != null) {
+            s.resultado().completeExceptionally(new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE, "El servidor se está deteniendo"));
+        }
+    }
+
+    // Encola el pedido y espera su resultado individual
+    public OrderResponse crearPedido(OrderRequest request, UserModel user) {
+        Solicitud solicitud = new Solicitud(request, user, new CompletableFuture<>(), new AtomicBoolean());
+        if (!cola.offer(solicitud)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Demasiados pedidos en cola, reintentá en unos segundos");
+        }
+        try {
+            try {
+                return solicitud.resultado().get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                if (solicitud.reclamada().compareAndSet(false, true)) {
+                    // El escritor todavía no la tomó y ya no la va a tomar: no se registró nada
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "El pedido no se confirmó a tiempo");
+                }
+                // Está en la transacción de un lote: el resultado llega con su commit o rollback
+                return solicitud.resultado().get();
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Pedido interrumpido");
+        }
+    }
+
+    private void drenar() {
+        List<Solicitud> lote = new ArrayList<>(maxBatch);
+        while (activo) {
+            try {
+                Solicitud primera = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+                long limite = System.nanoTime() + maxWaitNanos;
+                while (lote.size() < maxBatch) {
+                    long resta = limite - System.nanoTime();
+                    Solicitud siguiente = resta > 0 ? cola.poll(resta, TimeUnit.NANOSECONDS) : cola.poll();
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+                procesar(lote);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                activo = false;
+                fallarPendientes(lote, new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Pedido interrumpido"));
+            } catch (RuntimeException ex) {
+                log.error("Error inesperado en el group-commit de pedidos", ex);
+                fallarPendientes(lote, ex);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void procesar(List<Solicitud> lote) {
+        Map<Solicitud, OrderResponse> aceptados = new LinkedHashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Solicitud s : lote) {
+                    if (s.resultado().isDone() || !s.reclamada().compareAndSet(false, true)) {
+                        continue;
+                    }
+                    try {
+                        aceptados.put(s, orderService.registrarPedido(s.request(), s.user()));
+                    } catch (ResponseStatusException ex) {
+                        s.resultado().completeExceptionally(ex);
+                    }
+                }
+            });
+            aceptados.forEach((s, resp) -> s.resultado().complete(resp));
+        } catch (RuntimeException ex) {
+            // Rollback del lote entero, también si un pedido lanzó algo que no es ResponseStatusException
+            log.warn("Falló el commit de un lote de {} pedidos", lote.size(), ex);
+            fallarPendientes(lote, ex);
+        }
+    }
+
+    // Ningún hilo HTTP queda esperando hasta el timeout por un pedido que ya no se va a confirmar
+    private static void fallarPendientes(List<Solicitud> lote, RuntimeException ex) {
+        for (Solicitud s : lote) {
+            if (!s.resultado().isDone()) {
+                s.resultado().completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -1,81 +1,100 @@
 package com.sweettreats.SweetTreats.service.impl;
 
+import com.sweettreats.SweetTreats.dto.BulkStatusResponse;
+import com.sweettreats.SweetTreats.dto.CursorPage;
 import com.sweettreats.SweetTreats.dto.OrderDetailResponse;
+import com.sweettreats.SweetTreats.dto.OrderHeaderDto;
+import com.sweettreats.SweetTreats.dto.OrderItem;
+import com.sweettreats.SweetTreats.dto.OrderLineDto;
 import com.sweettreats.SweetTreats.dto.OrderRequest;
 import com.sweettreats.SweetTreats.dto.OrderResponse;
+import com.sweettreats.SweetTreats.dto.OrderSearchFilter;
+import com.sweettreats.SweetTreats.dto.ProductPriceDto;
+import com.sweettreats.SweetTreats.event.OrderChangedEvent;
 import com.sweettreats.SweetTreats.model.*;
 import com.sweettreats.SweetTreats.repository.OrderRepository;
 import com.sweettreats.SweetTreats.repository.ProductRepository;
 import com.sweettreats.SweetTreats.service.OrderService;
-import jakarta.transaction.Transactional;
+import com.sweettreats.SweetTreats.service.StockService;
+import com.sweettreats.SweetTreats.util.OrderCursor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.data.domain.Pageable;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderServiceImpl implements OrderService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
+    private final StockService stockService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReadYourWrites readYourWrites;
 
-    public OrderServiceImpl(OrderRepository orderRepository, ProductRepository productRepository) {
+    public OrderServiceImpl(OrderRepository orderRepository,
+                            ProductRepository productRepository,
+                            StockService stockService,
+                            ApplicationEventPublisher eventPublisher,
+                            ReadYourWrites readYourWrites) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
+        this.stockService = stockService;
+        this.eventPublisher = eventPublisher;
+        this.readYourWrites = readYourWrites;
     }
     @Override
     @Transactional
     public OrderResponse crearPedido(OrderRequest request, UserModel user) {
-        OrderModel order = new OrderModel();
-        order.setUsermodel(user);
-        order.setDireccionEnvio(request.direccionEnvio());
-        order.setMetodoPago(request.metodoPago());
-        order.setEstado(OrderEnum.PENDIENTE);
+        return registrarPedido(request, user);
+    }
 
-        List<OrderDetailModel> detalles = request.items().stream()
-                .map(item -> {
-                    ProductModel prod = productRepository.findById(item.productId())
-                            .orElseThrow(() -> new ResponseStatusException(
-                                    HttpStatus.NOT_FOUND, "Producto no encontrado"));
-
-                    if (item.cantidad() > prod.getStock()) {
-                        throw new ResponseStatusException(
-                                HttpStatus.BAD_REQUEST,
-                                "Stock insuficiente para producto " + prod.getId()
-                        );
-                    }
-
-                    prod.setStock(prod.getStock() - item.cantidad());
-
-                    OrderDetailModel det = new OrderDetailModel();
-                    det.setOrderModel(order);
-                    det.setProductModel(prod);
-                    det.setCantidad(item.cantidad());
-                    det.setPrecioUnitario(BigDecimal.valueOf(prod.getPrecio()));
-                    return det;
-                })
-                .collect(Collectors.toList());
+    // Cuerpo de crearPedido sin demarcación propia: el group-commit lo ejecuta
+    // dentro de la transacción compartida del lote. Los errores de negocio se
+    // lanzan antes de persistir nada, así que no contaminan al resto del lote.
+    public OrderResponse registrarPedido(OrderRequest request, UserModel user) {
+        Map<Long, Integer> cantidades = agruparCantidades(request.items());
 
-        BigDecimal total = detalles.stream()
-                .map(d -> d.getPrecioUnitario().multiply(BigDecimal.valueOf(d.getCantidad())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Map<Long, ProductPriceDto> productos = productRepository.findPricesByIdIn(cantidades.keySet()).stream()
+                .collect(Collectors.toMap(ProductPriceDto::id, Function.identity()));
+        if (productos.size() != cantidades.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado");
+        }
 
-        order.setTotal(total);
-        order.setDetalles(detalles);
+        stockService.reservar(cantidades, LocalDateTime.now());
 
-        OrderModel saved = orderRepository.save(order);
+        OrderModel saved = orderRepository.save(buildOrderEntity(request, user, productos));
+        publicarCambio(saved, null);
+        readYourWrites.fijar(user.getEmail());
 
+        // La respuesta sale de lo que ya está en memoria: nombres de la proyección, no de las entidades
         List<OrderDetailResponse> detalleResp = saved.getDetalles().stream()
-                .map(d -> new OrderDetailResponse(
-                        d.getProductModel().getId(),
-                        d.getProductModel().getNombre(),
-                        d.getCantidad(),
-                        d.getPrecioUnitario()
-                ))
+                .map(d -> {
+                    Long productId = d.getProductModel().getId();
+                    return new OrderDetailResponse(
+                            productId,
+                            productos.get(productId).nombre(),
+                            d.getCantidad(),
+                            d.getPrecioUnitario());
+                })
                 .collect(Collectors.toList());
 
         return new OrderResponse(
@@ -91,49 +110,127 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    public List<OrderResponse> obtenerPedidosDeUsuario(UserModel user) {
-        return orderRepository.findAllByUsermodel(user).stream()
-                .map(order -> {
-                    List<OrderDetailResponse> detalles = order.getDetalles().stream()
-                            .map(d -> new OrderDetailResponse(
-                                    d.getProductModel().getId(),
-                                    d.getProductModel().getNombre(),
-                                    d.getCantidad(),
-                                    d.getPrecioUnitario()
-                            ))
-                            .collect(Collectors.toList());
-                    return new OrderResponse(
-                            order.getId(),
-                            order.getUsermodel().getEmail(),
-                            order.getDireccionEnvio(),
-                            order.getMetodoPago(),
-                            order.getTotal(),
-                            order.getEstado(),
-                            order.getCreatedAt(),
-                            detalles
-                    );
-                })
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> obtenerPedidosDeUsuario(UserModel user, String cursor, int size) {
+        int limite = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Pageable pagina = PageRequest.of(0, limite + 1);
+
+        List<OrderHeaderDto> orders;
+        if (cursor == null || cursor.isBlank()) {
+            orders = orderRepository.findHistoryFirstPage(user.getId(), pagina);
+        } else {
+            OrderCursor desde = OrderCursor.decode(cursor);
+            orders = orderRepository.findHistoryPageAfter(user.getId(), desde.createdAt(), desde.id(), pagina);
+        }
+        return armarPagina(orders, limite, null);
+    }
+
+    @Override
+    public CursorPage<OrderResponse> buscarPedidosAdmin(OrderSearchFilter filter, String cursor, int size, boolean contar) {
+        int limite = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        OrderCursor desde = cursor == null || cursor.isBlank() ? null : OrderCursor.decode(cursor);
+        List<OrderHeaderDto> orders = orderRepository.searchPage(filter, desde, limite + 1);
+        Long total = contar ? orderRepository.countMatching(filter) : null;
+        return armarPagina(orders, limite, total);
+    }
+
+    // Recibe hasta limite + 1 pedidos: el sobrante solo indica que hay otra página
+    private CursorPage<OrderResponse> armarPagina(List<OrderHeaderDto> orders, int limite, Long total) {
+        boolean hayMas = orders.size() > limite;
+        if (hayMas) {
+            orders = orders.subList(0, limite);
+        }
+        if (orders.isEmpty()) {
+            return new CursorPage<>(List.of(), null, total);
+        }
+
+        OrderHeaderDto ultimo = orders.get(orders.size() - 1);
+        String siguiente = hayMas ? new OrderCursor(ultimo.createdAt(), ultimo.id()).encode() : null;
+        return new CursorPage<>(armarRespuestas(orders), siguiente, total);
+    }
+
+    // Une cabeceras y líneas proyectadas en una pasada; todas las líneas llegan en una sola consulta
+    private List<OrderResponse> armarRespuestas(List<OrderHeaderDto> headers) {
+        if (headers.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = headers.stream().map(OrderHeaderDto::id).collect(Collectors.toList());
+        Map<Long, List<OrderDetailResponse>> detallesPorPedido = new HashMap<>();
+        for (OrderLineDto linea : orderRepository.findLines(ids)) {
+            detallesPorPedido.computeIfAbsent(linea.orderId(), k -> new ArrayList<>())
+                    .add(new OrderDetailResponse(
+                            linea.productId(),
+                            linea.productName(),
+                            linea.cantidad(),
+                            linea.precioUnitario()));
+        }
+
+        List<OrderResponse> items = new ArrayList<>(headers.size());
+        for (OrderHeaderDto h : headers) {
+            items.add(new OrderResponse(
+                    h.id(),
+                    h.email(),
+                    h.direccionEnvio(),
+                    h.metodoPago(),
+                    h.total(),
+                    h.estado(),
+                    h.createdAt(),
+                    detallesPorPedido.getOrDefault(h.id(), List.of())));
+        }
+        return items;
+    }
+
+    private OrderResponse respuestaPorId(Long id) {
+        OrderHeaderDto header = orderRepository.findHeaderById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Pedido no encontrado"));
+        return armarRespuestas(List.of(header)).get(0);
     }
 
 
     @Override
+    @Transactional(readOnly = true)
     public OrderResponse obtenerPedidoPorId(UserModel user, Long id) {
-        OrderModel order = orderRepository.findById(id)
+        OrderHeaderDto header = orderRepository.findHeaderById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Pedido no encontrado"));
-        if (!order.getUsermodel().getId().equals(user.getId())) {
+        if (!header.userId().equals(user.getId())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "No tienes acceso a este pedido");
         }
-        return mapToResponse(order);
+        return armarRespuestas(List.of(header)).get(0);
     }
 
     @Override
     public Page<OrderResponse> obtenerTodosLosPedidos(Pageable pageable) {
-        return orderRepository.findAll(pageable)
-                .map(this::mapToResponse);
+        Page<OrderHeaderDto> headers = orderRepository.findHeaders(pageable);
+        return new PageImpl<>(armarRespuestas(headers.getContent()), pageable, headers.getTotalElements());
     }
 
-    private OrderModel buildOrderEntity(OrderRequest request, UserModel user) {
+    private Map<Long, Integer> agruparCantidades(List<OrderItem> items) {
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            cantidades.merge(item.productId(), item.cantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+
+    private Map<Long, Integer> cantidadesPorProducto(Collection<Long> orderIds) {
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        for (Object[] fila : orderRepository.sumCantidadesByProducto(orderIds)) {
+            cantidades.put((Long) fila[0], ((Number) fila[1]).intValue());
+        }
+        return cantidades;
+    }
+
+    private void publicarCambio(OrderModel order, OrderEnum estadoAnterior) {
+        eventPublisher.publishEvent(new OrderChangedEvent(
+                order.getId(),
+                order.getUsermodel().getId(),
+                estadoAnterior,
+                order.getEstado(),
+                order.getTotal(),
+                order.getCreatedAt()));
+    }
+
+    private OrderModel buildOrderEntity(OrderRequest request, UserModel user, Map<Long, ProductPriceDto> productos) {
         OrderModel order = new OrderModel();
         order.setUsermodel(user);
         order.setDireccionEnvio(request.direccionEnvio());
@@ -141,16 +238,13 @@ public class OrderServiceImpl implements OrderService {
         order.setEstado(OrderEnum.PENDIENTE);
 
         List<OrderDetailModel> detalles = request.items().stream().map(item -> {
-            ProductModel prod = productRepository.findById(item.productId())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
-            if (item.cantidad() > prod.getStock()) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock insuficiente para producto " + prod.getId());
-            }
+            ProductPriceDto prod = productos.get(item.productId());
             OrderDetailModel det = new OrderDetailModel();
             det.setOrderModel(order);
-            det.setProductModel(prod);
+            // Referencia sin cargar: solo hace falta la FK
+            det.setProductModel(productRepository.getReferenceById(prod.id()));
             det.setCantidad(item.cantidad());
-            det.setPrecioUnitario(BigDecimal.valueOf(prod.getPrecio()));
+            det.setPrecioUnitario(BigDecimal.valueOf(prod.precio()));
             return det;
         }).collect(Collectors.toList());
 
@@ -162,43 +256,93 @@ public class OrderServiceImpl implements OrderService {
         return order;
     }
 
-    private OrderResponse mapToResponse(OrderModel saved) {
-        List<OrderDetailResponse> detalleResp = saved.getDetalles().stream()
-                .map(d -> new OrderDetailResponse(
-                        d.getProductModel().getId(),
-                        d.getProductModel().getNombre(),
-                        d.getCantidad(),
-                        d.getPrecioUnitario()))
-                .collect(Collectors.toList());
-        return new OrderResponse(
-                saved.getId(),
-                saved.getUsermodel().getEmail(),
-                saved.getDireccionEnvio(),
-                saved.getMetodoPago(),
-                saved.getTotal(),
-                saved.getEstado(),
-                saved.getCreatedAt(),
-                detalleResp);
-    }
-
     @Override
     @Transactional
     public OrderResponse updateOrderStatus(Long id, OrderEnum nuevoEstado) {
-        OrderModel order = orderRepository.findById(id)
+        OrderModel order = orderRepository.findWithLockById(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Pedido no encontrado")
                 );
 
+        OrderEnum anterior = order.getEstado();
+        if (anterior != OrderEnum.CANCELADO && nuevoEstado == OrderEnum.CANCELADO) {
+            stockService.liberar(cantidadesPorProducto(List.of(id)));
+        } else if (anterior == OrderEnum.CANCELADO && nuevoEstado != OrderEnum.CANCELADO) {
+            stockService.reservar(cantidadesPorProducto(List.of(id)), order.getCreatedAt());
+        }
+
         order.setEstado(nuevoEstado);
 
         OrderModel saved = orderRepository.save(order);
+        if (anterior != nuevoEstado) {
+            publicarCambio(saved, anterior);
+        }
 
-        return mapToResponse(saved);
+        return respuestaPorId(saved.getId());
+    }
+
+    @Override
+    @Transactional
+    public BulkStatusResponse updateOrderStatuses(Collection<Long> ids, OrderEnum nuevoEstado) {
+        Map<Long, OrderModel> pedidos = orderRepository.findForUpdateByIdIn(new LinkedHashSet<>(ids)).stream()
+                .collect(Collectors.toMap(OrderModel::getId, Function.identity()));
+
+        List<Long> cambiados = new ArrayList<>();
+        List<Long> aCancelar = new ArrayList<>();
+        List<Long> aReactivar = new ArrayList<>();
+        for (OrderModel order : pedidos.values()) {
+            OrderEnum anterior = order.getEstado();
+            if (anterior == nuevoEstado) {
+                continue;
+            }
+            cambiados.add(order.getId());
+            if (nuevoEstado == OrderEnum.CANCELADO) {
+                aCancelar.add(order.getId());
+            } else if (anterior == OrderEnum.CANCELADO) {
+                aReactivar.add(order.getId());
+            }
+        }
+
+        // Mismas reglas de stock que updateOrderStatus, con una consulta agrupada por sentido
+        if (!aCancelar.isEmpty()) {
+            stockService.liberar(cantidadesPorProducto(aCancelar));
+        }
+        // Se reserva por fecha de creación para que last_sold_at de cada producto quede con la
+        // fecha de sus propios pedidos y no con la del pedido más reciente del lote
+        Map<LocalDateTime, List<Long>> reactivarPorFecha = aReactivar.stream()
+                .collect(Collectors.groupingBy(id -> pedidos.get(id).getCreatedAt(), TreeMap::new, Collectors.toList()));
+        reactivarPorFecha.forEach((vendidoEn, orderIds) ->
+                stockService.reservar(cantidadesPorProducto(orderIds), vendidoEn));
+        if (!cambiados.isEmpty()) {
+            orderRepository.updateEstadoByIdIn(cambiados, nuevoEstado, LocalDateTime.now());
+        }
+
+        List<BulkStatusResponse.Resultado> resultados = new ArrayList<>();
+        int actualizados = 0, sinCambio = 0, noEncontrados = 0;
+        for (Long id : new LinkedHashSet<>(ids)) {
+            OrderModel order = pedidos.get(id);
+            if (order == null) {
+                noEncontrados++;
+                resultados.add(new BulkStatusResponse.Resultado(id, BulkStatusResponse.Tipo.NO_ENCONTRADO, null));
+                continue;
+            }
+            OrderEnum anterior = order.getEstado();
+            if (anterior == nuevoEstado) {
+                sinCambio++;
+                resultados.add(new BulkStatusResponse.Resultado(id, BulkStatusResponse.Tipo.SIN_CAMBIO, anterior));
+                continue;
+            }
+            actualizados++;
+            resultados.add(new BulkStatusResponse.Resultado(id, BulkStatusResponse.Tipo.ACTUALIZADO, anterior));
+            eventPublisher.publishEvent(new OrderChangedEvent(
+                    id, order.getUsermodel().getId(), anterior, nuevoEstado, order.getTotal(), order.getCreatedAt()));
+        }
+        return new BulkStatusResponse(nuevoEstado, actualizados, sinCambio, noEncontrados, resultados);
     }
 
     @Transactional
     public OrderResponse cancelOrderByUser(Long orderId, UserModel user) {
-        OrderModel order = orderRepository.findById(orderId)
+        OrderModel order = orderRepository.findWithLockById(orderId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Pedido no encontrado"));
 
@@ -213,15 +357,33 @@ public class OrderServiceImpl implements OrderService {
         }
 
         order.setEstado(OrderEnum.CANCELADO);
+        stockService.liberar(cantidadesPorProducto(List.of(orderId)));
         OrderModel saved = orderRepository.save(order);
-        return mapToResponse(saved);
+        publicarCambio(saved, OrderEnum.PENDIENTE);
+        readYourWrites.fijar(user.getEmail());
+        return respuestaPorId(saved.getId());
+    }
+
+    @Override
+    @Transactional
+    public List<Long> expirarPedidos(Collection<Long> ids) {
+        // Solo los que siguen PENDIENTE: un cambio de estado concurrente gana sobre el vencimiento
+        List<OrderModel> pendientes = orderRepository.findForUpdateByIdInAndEstado(ids, OrderEnum.PENDIENTE);
+        if (pendientes.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> vencidos = pendientes.stream().map(OrderModel::getId).collect(Collectors.toList());
+        stockService.liberar(cantidadesPorProducto(vencidos));
+        for (OrderModel order : pendientes) {
+            order.setEstado(OrderEnum.CANCELADO);
+            publicarCambio(order, OrderEnum.PENDIENTE);
+        }
+        return vencidos;
     }
 
     public OrderResponse obtenerPedidoAdminPorId(Long id) {
-        OrderModel order = orderRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Pedido no encontrado"));
-        return mapToResponse(order);
+        return respuestaPorId(id);
     }
 
 }
@@ -0,0 +1,118 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.dto.OrderLineDto;
+import com.sweettreats.SweetTreats.event.OrderChangedEvent;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import com.sweettreats.SweetTreats.repository.ProductRepository;
+import com.sweettreats.SweetTreats.service.StockService;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Completa lo que el StockService no puede saber de products.last_sold_at: al cancelar
+ * o reactivar pedidos, antes del commit, recalcula la última venta de sus productos desde
+ * orders, solo donde la venta deshecha podía ser la más reciente. Las altas no pasan por
+ * acá: la reserva de stock ya actualiza last_sold_at y unidades_vendidas.
+ *
+ * Con el StockLedger, un pedido creado y cancelado antes del siguiente volcado puede dejar
+ * last_sold_at en su fecha hasta la próxima venta del producto.
+ */
+@Service
+public class ProductSalesStats {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSalesStats.class);
+
+    private static final String BACKFILL_SQL =
+            "UPDATE products p SET " +
+            "unidades_vendidas = COALESCE((SELECT SUM(d.cantidad) FROM order_details d " +
+            "  JOIN orders o ON o.id = d.order_model_id " +
+            "  WHERE d.product_model_id = p.id AND o.estado <> 'CANCELADO'), 0), " +
+            "last_sold_at = (SELECT MAX(o.created_at) FROM order_details d " +
+            "  JOIN orders o ON o.id = d.order_model_id " +
+            "  WHERE d.product_model_id = p.id AND o.estado <> 'CANCELADO') " +
+            "WHERE p.unidades_vendidas IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // StockService primero: el StockLedger vuelca su journal al arrancar y esos
+    // movimientos no deben sumarse dos veces con el backfill
+    public ProductSalesStats(JdbcTemplate jdbcTemplate,
+                             OrderRepository orderRepository,
+                             ProductRepository productRepository,
+                             StockService stockService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+    }
+
+    // Una sola vez: después de agregar las columnas todos los productos quedan en NULL,
+    // y los que se crean desde entonces arrancan en 0
+    @PostConstruct
+    public void backfill() {
+        int productos = jdbcTemplate.update(BACKFILL_SQL);
+        if (productos > 0) {
+            log.info("unidades_vendidas y last_sold_at calculados para {} productos", productos);
+        }
+    }
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.esCreacion() || event.signoVenta() == 0
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        pendientes().merge(event.orderId(), event.createdAt(), (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    // Pedidos cancelados o reactivados en la transacción actual, con su fecha
+    @SuppressWarnings("unchecked")
+    private Map<Long, LocalDateTime> pendientes() {
+        Map<Long, LocalDateTime> pedidos = (Map<Long, LocalDateTime>) TransactionSynchronizationManager.getResource(this);
+        if (pedidos == null) {
+            Map<Long, LocalDateTime> nuevos = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, nuevos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // El nuevo estado tiene que estar en la base para que el recálculo lo vea
+                    entityManager.flush();
+                    recalcular(nuevos);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ProductSalesStats.this);
+                }
+            });
+            pedidos = nuevos;
+        }
+        return pedidos;
+    }
+
+    private void recalcular(Map<Long, LocalDateTime> pedidos) {
+        List<OrderLineDto> lineas = orderRepository.findLines(pedidos.keySet());
+        Map<Long, LocalDateTime> hasta = new HashMap<>();
+        for (OrderLineDto l : lineas) {
+            hasta.merge(l.productId(), pedidos.get(l.orderId()), (a, b) -> a.isAfter(b) ? a : b);
+        }
+        productRepository.recalcularUltimaVenta(hasta);
+    }
+}
@@ -1,15 +1,18 @@
 // src/main/java/com/sweettreats/SweetTreats/service/ProductService.java
 package com.sweettreats.SweetTreats.service.impl;
 
+import com.sweettreats.SweetTreats.event.ProductChangedEvent;
 import com.sweettreats.SweetTreats.model.ProductModel;
 import com.sweettreats.SweetTreats.model.Status;
 import com.sweettreats.SweetTreats.repository.ProductRepository;
 import com.sweettreats.SweetTreats.service.ProductService;
-import jakarta.transaction.Transactional;
+import com.sweettreats.SweetTreats.service.StockService;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -22,21 +25,30 @@ import java.util.UUID;
 public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository repo;
+    private final StockService stockService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.upload.dir}")
     private String uploadDir;
 
-    public ProductServiceImpl(ProductRepository repo) {
+    public ProductServiceImpl(ProductRepository repo,
+                              StockService stockService,
+                              ApplicationEventPublisher eventPublisher) {
         this.repo = repo;
+        this.stockService = stockService;
+        this.eventPublisher = eventPublisher;
     }
 
+    // Catálogo público: readOnly lo manda a la réplica si hay una configurada
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductModel> getAll(int page, int size) {
         Pageable pg = PageRequest.of(page, size, Sort.by("id"));
         return repo.findByStatus(Status.ACTIVE, pg);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ProductModel getById(Long id) {
         return repo.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
@@ -59,10 +71,13 @@ public class ProductServiceImpl implements ProductService {
             product.setImagen(saveImage(imagen));
         }
 
-        return repo.save(product);
+        ProductModel saved = repo.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId()));
+        return saved;
     }
 
     @Override
+    @Transactional
     public ProductModel update(Long id,
                                String nombre,
                                Double precio,
@@ -72,9 +87,9 @@ public class ProductServiceImpl implements ProductService {
                                Boolean mantenerImagen) {
 
         ProductModel existing = getById(id);
+        int delta = stock - existing.getStock();
         existing.setNombre(nombre);
         existing.setPrecio(precio);
-        existing.setStock(stock);
         existing.setDescripcion(descripcion);
 
         if (imagen != null && !imagen.isEmpty()) {
@@ -83,10 +98,19 @@ public class ProductServiceImpl implements ProductService {
             existing.setImagen(null);
         }
 
-        return repo.save(existing);
+        ProductModel saved = repo.save(existing);
+        // Solo si el ADMIN cambió el stock, y como diferencia contra el que vio: las ventas
+        // concurrentes no se pierden. La columna no es updatable, el setStock es para la respuesta
+        if (delta != 0) {
+            stockService.ajustar(saved.getId(), delta);
+            saved.setStock(stock);
+        }
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId()));
+        return saved;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductModel> getByStatus(Status status, int page, int size) {
         Pageable pg = PageRequest.of(page, size, Sort.by("id"));
         return repo.findByStatus(status, pg);
@@ -97,13 +121,16 @@ public class ProductServiceImpl implements ProductService {
         ProductModel prod = getById(id);
         prod.setStatus(Status.INACTIVE);
         repo.save(prod);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
     }
 
     @Transactional
     public ProductModel reactivate(Long id) {
         ProductModel prod = getById(id);
         prod.setStatus(Status.ACTIVE);
-        return repo.save(prod);
+        ProductModel saved = repo.save(prod);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
+        return saved;
     }
 
     private String saveImage(MultipartFile file) {
@@ -0,0 +1,67 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Usuarios que acaban de confirmar un pedido propio: durante un rato sus lecturas van a
+ * la primaria aunque la transacción sea de solo lectura, así no ven en la réplica el
+ * stock o su historial de antes del pedido. La ventana tiene que superar el retraso
+ * máximo que se le tolera a la réplica más el intervalo con que se mide.
+ */
+@Service
+public class ReadYourWrites {
+
+    private final Map<String, Long> fijados = new ConcurrentHashMap<>();
+    private final long ventanaMillis;
+
+    public ReadYourWrites(@Value("${app.datasource.replica.pin:10s}") Duration ventana) {
+        this.ventanaMillis = ventana.toMillis();
+    }
+
+    /** Fija al usuario a la primaria a partir del commit de la transacción actual. */
+    public void fijar(String usuario) {
+        if (usuario == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            fijados.put(usuario, System.currentTimeMillis() + ventanaMillis);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                fijados.put(usuario, System.currentTimeMillis() + ventanaMillis);
+            }
+        });
+    }
+
+    public boolean fijado(String usuario) {
+        if (usuario == null) {
+            return false;
+        }
+        Long hasta = fijados.get(usuario);
+        if (hasta == null) {
+            return false;
+        }
+        if (hasta <= System.currentTimeMillis()) {
+            fijados.remove(usuario, hasta);
+            return false;
+        }
+        return true;
+    }
+
+    // Los que no vuelven a leer no pasan por fijado(): se limpian acá
+    @Scheduled(fixedDelayString = "${app.datasource.replica.pin-cleanup-ms:60000}")
+    public void limpiar() {
+        long ahora = System.currentTimeMillis();
+        fijados.values().removeIf(hasta -> hasta <= ahora);
+    }
+}
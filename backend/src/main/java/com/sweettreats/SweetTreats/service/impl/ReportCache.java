@@ -0,0 +1,234 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.dto.ReportCacheStatsDto;
+import com.sweettreats.SweetTreats.event.ProductChangedEvent;
+import com.sweettreats.SweetTreats.event.SalesDeltaEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache de resultados de reportes por (reporte, parámetro). Cada entrada declara de qué
+ * depende: las ventas desde cierto día y/o los datos de productos (stock, nombre, estado).
+ * Un pedido que entra o sale de las ventas invalida solo las entradas cuyo rango incluye
+ * su día; una edición de producto o un movimiento de stock invalida las de productos.
+ * El TTL acota lo que no llega como evento (cambio de día, escrituras por fuera de la app).
+ *
+ * Una sola consulta por clave a la vez: los pedidos concurrentes esperan el mismo
+ * CompletableFuture. Si la entrada se invalida mientras se calcula, el resultado se
+ * devuelve a quienes esperaban pero no queda guardado.
+ *
+ * Con réplica de lectura, lo calculado poco después de una invalidación puede venir de
+ * una réplica que todavía no recibió el cambio: esas entradas vencen al terminar el
+ * retraso tolerado en vez de quedar todo el TTL.
+ */
+@Service
+public class ReportCache {
+
+    /** De qué datos depende un resultado; ventasDesde null si no depende de ventas. */
+    public record Dependencia(LocalDate ventasDesde, boolean productos) {
+
+        public static Dependencia ventas(LocalDate desde) {
+            return new Dependencia(desde, false);
+        }
+
+        public static Dependencia ventasYProductos(LocalDate desde) {
+            return new Dependencia(desde, true);
+        }
+
+        public static Dependencia soloProductos() {
+            return new Dependencia(null, true);
+        }
+    }
+
+    private record Clave(String reporte, String parametro) {
+    }
+
+    private static final class Entrada {
+        final CompletableFuture<Object> valor = new CompletableFuture<>();
+        final Dependencia dependencia;
+        // Mientras se calcula no vence; al terminar se fija con el TTL
+        volatile long expiraEn = Long.MAX_VALUE;
+
+        Entrada(Dependencia dependencia) {
+            this.dependencia = dependencia;
+        }
+    }
+
+    private final int maxEntradas;
+    private final Duration ttlHoy;
+    private final Duration ttlSemana;
+    private final Duration ttlMes;
+    private final Duration ttlLargo;
+    private final Duration ttlOtros;
+    private final long graciaReplicaMillis;
+
+    private volatile long ultimaInvalidacion;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidaciones = new AtomicLong();
+    private final AtomicLong expulsiones = new AtomicLong();
+
+    private final LinkedHashMap<Clave, Entrada> entradas;
+
+    public ReportCache(@Value("${app.reports.cache.max-entries:256}") int maxEntradas,
+                       @Value("${app.reports.cache.ttl.today:30s}") Duration ttlHoy,
+                       @Value("${app.reports.cache.ttl.week:2m}") Duration ttlSemana,
+                       @Value("${app.reports.cache.ttl.month:5m}") Duration ttlMes,
+                       @Value("${app.reports.cache.ttl.year:15m}") Duration ttlLargo,
+                       @Value("${app.reports.cache.ttl.other:1m}") Duration ttlOtros,
+                       @Value("${app.datasource.replica.url:}") String replica,
+                       @Value("${app.datasource.replica.max-lag:5s}") Duration maxRetrasoReplica) {
+        this.maxEntradas = maxEntradas;
+        this.ttlHoy = ttlHoy;
+        this.ttlSemana = ttlSemana;
+        this.ttlMes = ttlMes;
+        this.ttlLargo = ttlLargo;
+        this.ttlOtros = ttlOtros;
+        this.graciaReplicaMillis = replica.isBlank() ? 0 : maxRetrasoReplica.toMillis();
+        this.entradas = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Clave, Entrada> eldest) {
+                if (size() > ReportCache.this.maxEntradas) {
+                    expulsiones.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** TTL según el período: lo que incluye hoy cambia seguido, un año casi nada por minuto. */
+    public Duration ttlPara(String period) {
+        return switch (period) {
+            case "today" -> ttlHoy;
+            case "week"  -> ttlSemana;
+            case "month" -> ttlMes;
+            case "year", "all" -> ttlLargo;
+            default      -> ttlOtros;
+        };
+    }
+
+    public Duration ttlPorDefecto() {
+        return ttlOtros;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T obtener(String reporte, String parametro, Duration ttl,
+                         Dependencia dependencia, Supplier<T> calculo) {
+        Clave clave = new Clave(reporte, parametro);
+        Entrada entrada;
+        boolean calcular = false;
+        synchronized (entradas) {
+            entrada = entradas.get(clave);
+            if (entrada != null && entrada.expiraEn <= System.currentTimeMillis()) {
+                entradas.remove(clave);
+                entrada = null;
+            }
+            if (entrada == null) {
+                entrada = new Entrada(dependencia);
+                entradas.put(clave, entrada);
+                calcular = true;
+            }
+        }
+
+        if (!calcular) {
+            hits.incrementAndGet();
+            return (T) esperar(entrada);
+        }
+
+        misses.incrementAndGet();
+        long inicio = System.currentTimeMillis();
+        try {
+            T valor = calculo.get();
+            long expira = System.currentTimeMillis() + ttl.toMillis();
+            long alDia = ultimaInvalidacion + graciaReplicaMillis;
+            entrada.expiraEn = inicio < alDia ? Math.min(expira, alDia) : expira;
+            entrada.valor.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            // Un error no se cachea: el próximo pedido vuelve a intentar
+            synchronized (entradas) {
+                entradas.remove(clave, entrada);
+            }
+            entrada.valor.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Object esperar(Entrada entrada) {
+        try {
+            return entrada.valor.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+
+    // Después de que el cubo y demás estructuras en memoria aplicaron el delta
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onSalesDelta(SalesDeltaEvent event) {
+        LocalDate primerDia = event.ventas().stream()
+                .map(v -> v.createdAt().toLocalDate())
+                .min(LocalDate::compareTo)
+                .orElse(null);
+        if (primerDia == null) {
+            return;
+        }
+        // Crear o cancelar un pedido también mueve stock: caen las de productos
+        invalidar(d -> d.productos()
+                || (d.ventasDesde() != null && !d.ventasDesde().isAfter(primerDia)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidar(Dependencia::productos);
+    }
+
+    private void invalidar(Predicate<Dependencia> afectada) {
+        ultimaInvalidacion = System.currentTimeMillis();
+        int n = 0;
+        synchronized (entradas) {
+            Iterator<Entrada> it = entradas.values().iterator();
+            while (it.hasNext()) {
+                if (afectada.test(it.next().dependencia)) {
+                    it.remove();
+                    n++;
+                }
+            }
+        }
+        invalidaciones.addAndGet(n);
+    }
+
+    public ReportCacheStatsDto estadisticas() {
+        long h = hits.get();
+        long m = misses.get();
+        int tamanio;
+        synchronized (entradas) {
+            tamanio = entradas.size();
+        }
+        return new ReportCacheStatsDto(h, m, invalidaciones.get(), expulsiones.get(),
+                tamanio, maxEntradas, h + m > 0 ? (double) h / (h + m) : 0);
+    }
+}
@@ -0,0 +1,365 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweettreats.SweetTreats.dto.NoSalesProductDto;
+import com.sweettreats.SweetTreats.dto.ReportJobDto;
+import com.sweettreats.SweetTreats.dto.ReportJobRequest;
+import com.sweettreats.SweetTreats.dto.WeeklyProductSalesDto;
+import com.sweettreats.SweetTreats.exception.BulkheadLlenoException;
+import com.sweettreats.SweetTreats.model.ReportJobEnum;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reportes que no entran en un request: se encolan, corren en un pool chico de hilos
+ * dentro del compartimento de reportes (y en la réplica si hay una) y el resultado queda
+ * en report_jobs como JSON comprimido hasta que vence. Cada tramo (semanas o rango de
+ * productos) es una consulta en su propia transacción de solo lectura, así ninguna
+ * retiene una conexión ni una vista consistente durante todo el job, y el avance se
+ * informa tramo a tramo.
+ *
+ * Dos pedidos con el mismo tipo y rango comparten el job en curso, y un resultado
+ * terminado hace poco se reutiliza en vez de volver a calcularlo.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJobService.class);
+
+    public static final String VENTAS_PRODUCTO_SEMANA = "ventas-producto-semana";
+    public static final String SIN_VENTAS = "sin-ventas";
+
+    // Cuatro semanas por consulta: cada semana cae entera en un tramo
+    private static final int DIAS_POR_TRAMO = 28;
+    private static final int PRODUCTOS_POR_TRAMO = 500;
+
+    private static final String VENTAS_SEMANA_SQL =
+            "SELECT d.product_model_id, p.nombre, DATE_SUB(o.dia, INTERVAL WEEKDAY(o.dia) DAY) AS semana, " +
+            "SUM(d.cantidad), SUM(d.cantidad * d.precio_unitario) " +
+            "FROM orders o " +
+            "JOIN order_details d ON d.order_model_id = o.id " +
+            "JOIN products p ON p.id = d.product_model_id " +
+            "WHERE o.dia >= ? AND o.dia < ? AND o.estado <> 'CANCELADO' " +
+            "GROUP BY d.product_model_id, p.nombre, semana " +
+            "ORDER BY semana, d.product_model_id";
+
+    private static final String SIN_VENTAS_SQL =
+            "SELECT p.id, p.nombre, p.stock, p.last_sold_at FROM products p " +
+            "WHERE p.id >= ? AND p.id < ? AND p.status = 'ACTIVE' " +
+            "AND NOT EXISTS (SELECT 1 FROM order_details d JOIN orders o ON o.id = d.order_model_id " +
+            "WHERE d.product_model_id = p.id AND o.dia >= ? AND o.dia < ? AND o.estado <> 'CANCELADO') " +
+            "ORDER BY p.id";
+
+    private static final String COLUMNAS =
+            "id, tipo, desde, hasta, estado, filas, error, created_at, finished_at, expires_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate lectura;
+    private final ObjectMapper objectMapper;
+    private final Bulkheads bulkheads;
+    private final ExecutorService ejecutor;
+    private final Duration ttl;
+    private final Duration reutilizar;
+    private final int maxDias;
+
+    // Jobs pendientes o en curso de esta instancia, por clave, y su avance (0 a 100)
+    private final Map<String, Long> activos = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> avances = new ConcurrentHashMap<>();
+
+    // OrderRepository asegura que el esquema ya fue generado por Hibernate
+    public ReportJobService(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            ObjectMapper objectMapper,
+                            Bulkheads bulkheads,
+                            OrderRepository orderRepository,
+                            @Value("${app.reports.jobs.threads:2}") int hilos,
+                            @Value("${app.reports.jobs.queue:16}") int cola,
+                            @Value("${app.reports.jobs.ttl:24h}") Duration ttl,
+                            @Value("${app.reports.jobs.reuse:15m}") Duration reutilizar,
+                            @Value("${app.reports.jobs.max-days:1100}") int maxDias) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.bulkheads = bulkheads;
+        this.ttl = ttl;
+        this.reutilizar = reutilizar;
+        this.maxDias = maxDias;
+        AtomicInteger n = new AtomicInteger();
+        this.ejecutor = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                r -> {
+                    Thread t = new Thread(r, "report-job-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    // Lo que quedó a medias en un proceso anterior no va a terminar nunca
+    @PostConstruct
+    public void marcarInterrumpidos() {
+        int n = jdbcTemplate.update(
+                "UPDATE report_jobs SET estado = ?, error = ?, finished_at = ? WHERE estado IN (?, ?)",
+                ReportJobEnum.FALLIDO.name(), "Interrumpido por un reinicio", Timestamp.valueOf(LocalDateTime.now()),
+                ReportJobEnum.PENDIENTE.name(), ReportJobEnum.EN_CURSO.name());
+        if (n > 0) {
+            log.info("{} jobs de reportes marcados como interrumpidos", n);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        ejecutor.shutdownNow();
+    }
+
+    public ReportJobDto enviar(ReportJobRequest req, String usuario) {
+        validar(req);
+        String clave = clave(req);
+        long id;
+        synchronized (activos) {
+            Long enCurso = activos.get(clave);
+            if (enCurso != null) {
+                return estado(enCurso);
+            }
+            List<Long> reciente = jdbcTemplate.queryForList(
+                    "SELECT id FROM report_jobs WHERE clave = ? AND estado = ? AND finished_at > ? AND expires_at > ? " +
+                    "ORDER BY id DESC LIMIT 1", Long.class,
+                    clave, ReportJobEnum.TERMINADO.name(),
+                    Timestamp.valueOf(LocalDateTime.now().minus(reutilizar)), Timestamp.valueOf(LocalDateTime.now()));
+            if (!reciente.isEmpty()) {
+                return estado(reciente.get(0));
+            }
+
+            id = insertar(req, clave, usuario);
+            activos.put(clave, id);
+            avances.put(id, new AtomicInteger());
+            try {
+                ejecutor.execute(() -> correr(id, clave, req));
+            } catch (RejectedExecutionException e) {
+                activos.remove(clave);
+                avances.remove(id);
+                jdbcTemplate.update("DELETE FROM report_jobs WHERE id = ?", id);
+                throw new BulkheadLlenoException("Demasiados reportes en cola", 30);
+            }
+        }
+        return estado(id);
+    }
+
+    public ReportJobDto estado(Long id) {
+        List<ReportJobDto> filas = jdbcTemplate.query(
+                "SELECT " + COLUMNAS + " FROM report_jobs WHERE id = ? AND expires_at > ?",
+                (rs, i) -> {
+                    ReportJobEnum estado = ReportJobEnum.valueOf(rs.getString(5));
+                    AtomicInteger avance = avances.get(rs.getLong(1));
+                    int progreso = estado == ReportJobEnum.TERMINADO ? 100 : avance != null ? avance.get() : 0;
+                    Timestamp terminado = rs.getTimestamp(9);
+                    return new ReportJobDto(rs.getLong(1), rs.getString(2),
+                            rs.getDate(3).toLocalDate(), rs.getDate(4).toLocalDate(), estado, progreso,
+                            (Integer) rs.getObject(6, Integer.class), rs.getString(7),
+                            rs.getTimestamp(8).toLocalDateTime(),
+                            terminado != null ? terminado.toLocalDateTime() : null,
+                            rs.getTimestamp(10).toLocalDateTime());
+                },
+                id, Timestamp.valueOf(LocalDateTime.now()));
+        if (filas.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Job de reporte no encontrado o vencido");
+        }
+        return filas.get(0);
+    }
+
+    /** Resultado tal como está guardado: un array JSON comprimido con gzip. */
+    public byte[] resultadoComprimido(Long id) {
+        ReportJobDto job = estado(id);
+        if (job.estado() == ReportJobEnum.FALLIDO) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "El reporte falló: " + job.error());
+        }
+        if (job.estado() != ReportJobEnum.TERMINADO) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "El reporte todavía no terminó");
+        }
+        return jdbcTemplate.queryForObject("SELECT resultado FROM report_jobs WHERE id = ?", byte[].class, id);
+    }
+
+    /** Resultado como array JSON sin comprimir, para clientes que no aceptan gzip. */
+    public byte[] resultado(Long id) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(resultadoComprimido(id)))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el resultado del reporte", e);
+        }
+    }
+
+    private void validar(ReportJobRequest req) {
+        if (req.tipo() == null || !(VENTAS_PRODUCTO_SEMANA.equals(req.tipo()) || SIN_VENTAS.equals(req.tipo()))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "tipo debe ser " + VENTAS_PRODUCTO_SEMANA + " o " + SIN_VENTAS);
+        }
+        if (req.desde() == null || req.hasta() == null || req.desde().isAfter(req.hasta())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "desde y hasta son obligatorios y desde no puede ser posterior");
+        }
+        if (ChronoUnit.DAYS.between(req.desde(), req.hasta()) >= maxDias) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El rango no puede superar " + maxDias + " días");
+        }
+    }
+
+    private static String clave(ReportJobRequest req) {
+        String parametros = req.tipo() + '|' + req.desde() + '|' + req.hasta();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(parametros.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long insertar(ReportJobRequest req, String clave, String usuario) {
+        LocalDateTime ahora = LocalDateTime.now();
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO report_jobs (tipo, desde, hasta, clave, estado, solicitado_por, created_at, expires_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, req.tipo());
+            ps.setDate(2, Date.valueOf(req.desde()));
+            ps.setDate(3, Date.valueOf(req.hasta()));
+            ps.setString(4, clave);
+            ps.setString(5, ReportJobEnum.PENDIENTE.name());
+            ps.setString(6, usuario);
+            ps.setTimestamp(7, Timestamp.valueOf(ahora));
+            ps.setTimestamp(8, Timestamp.valueOf(ahora.plus(ttl)));
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+
+    private void correr(long id, String clave, ReportJobRequest req) {
+        try {
+            jdbcTemplate.update("UPDATE report_jobs SET estado = ? WHERE id = ?", ReportJobEnum.EN_CURSO.name(), id);
+            AtomicInteger avance = avances.get(id);
+            List<?> filas = bulkheads.en(Bulkheads.Compartimento.REPORTES, () -> calcular(req, avance));
+            LocalDateTime ahora = LocalDateTime.now();
+            jdbcTemplate.update(
+                    "UPDATE report_jobs SET estado = ?, filas = ?, resultado = ?, finished_at = ?, expires_at = ? WHERE id = ?",
+                    ReportJobEnum.TERMINADO.name(), filas.size(), comprimir(filas),
+                    Timestamp.valueOf(ahora), Timestamp.valueOf(ahora.plus(ttl)), id);
+        } catch (RuntimeException e) {
+            log.warn("Falló el job de reporte {} ({})", id, req.tipo(), e);
+            String motivo = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            jdbcTemplate.update("UPDATE report_jobs SET estado = ?, error = ?, finished_at = ? WHERE id = ?",
+                    ReportJobEnum.FALLIDO.name(), motivo.length() > 500 ? motivo.substring(0, 500) : motivo,
+                    Timestamp.valueOf(LocalDateTime.now()), id);
+        } finally {
+            activos.remove(clave, id);
+            avances.remove(id);
+        }
+    }
+
+    private List<?> calcular(ReportJobRequest req, AtomicInteger avance) {
+        LocalDate hastaExcl = req.hasta().plusDays(1);
+        return switch (req.tipo()) {
+            case VENTAS_PRODUCTO_SEMANA -> ventasPorProductoYSemana(req.desde(), hastaExcl, avance);
+            case SIN_VENTAS -> productosSinVentas(req.desde(), hastaExcl, avance);
+            default -> throw new IllegalStateException("Tipo de reporte desconocido: " + req.tipo());
+        };
+    }
+
+    private List<WeeklyProductSalesDto> ventasPorProductoYSemana(LocalDate desde, LocalDate hasta, AtomicInteger avance) {
+        List<WeeklyProductSalesDto> filas = new ArrayList<>();
+        LocalDate lunes = desde.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        long tramos = Math.max(1, (ChronoUnit.DAYS.between(lunes, hasta) + DIAS_POR_TRAMO - 1) / DIAS_POR_TRAMO);
+        long hechos = 0;
+        for (LocalDate inicio = lunes; inicio.isBefore(hasta); inicio = inicio.plusDays(DIAS_POR_TRAMO)) {
+            LocalDate fin = inicio.plusDays(DIAS_POR_TRAMO).isBefore(hasta) ? inicio.plusDays(DIAS_POR_TRAMO) : hasta;
+            LocalDate desdeTramo = inicio.isBefore(desde) ? desde : inicio;
+            lectura.executeWithoutResult(status -> jdbcTemplate.query(VENTAS_SEMANA_SQL, rs -> {
+                filas.add(new WeeklyProductSalesDto(rs.getLong(1), rs.getString(2), rs.getDate(3).toLocalDate(),
+                        rs.getLong(4), rs.getBigDecimal(5)));
+            }, Date.valueOf(desdeTramo), Date.valueOf(fin)));
+            avance.set((int) (++hechos * 100 / tramos));
+        }
+        return filas;
+    }
+
+    private List<NoSalesProductDto> productosSinVentas(LocalDate desde, LocalDate hasta, AtomicInteger avance) {
+        List<NoSalesProductDto> filas = new ArrayList<>();
+        Map<String, Object> rango = lectura.execute(status ->
+                jdbcTemplate.queryForMap("SELECT MIN(id) AS minimo, MAX(id) AS maximo FROM products"));
+        if (rango.get("minimo") == null) {
+            return filas;
+        }
+        long minimo = ((Number) rango.get("minimo")).longValue();
+        long maximo = ((Number) rango.get("maximo")).longValue();
+        for (long inicio = minimo; inicio <= maximo; inicio += PRODUCTOS_POR_TRAMO) {
+            long tramo = inicio;
+            lectura.executeWithoutResult(status -> jdbcTemplate.query(SIN_VENTAS_SQL, rs -> {
+                Timestamp ultima = rs.getTimestamp(4);
+                filas.add(new NoSalesProductDto(rs.getLong(1), rs.getString(2), (Integer) rs.getObject(3, Integer.class),
+                        ultima != null ? ultima.toLocalDateTime() : null));
+            }, tramo, tramo + PRODUCTOS_POR_TRAMO, Date.valueOf(desde), Date.valueOf(hasta)));
+            avance.set((int) Math.min(99, (inicio + PRODUCTOS_POR_TRAMO - minimo) * 100 / (maximo - minimo + 1)));
+        }
+        return filas;
+    }
+
+    private byte[] comprimir(List<?> filas) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, filas);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar el resultado del reporte", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.jobs.purge-ms:3600000}")
+    public void purgarVencidos() {
+        int n;
+        do {
+            n = jdbcTemplate.update("DELETE FROM report_jobs WHERE expires_at < ? LIMIT 1000",
+                    Timestamp.valueOf(LocalDateTime.now()));
+        } while (n == 1000);
+    }
+}
@@ -3,21 +3,89 @@ package com.sweettreats.SweetTreats.service.impl;
 import com.sweettreats.SweetTreats.dto.*;
 import com.sweettreats.SweetTreats.model.ProductModel;
 import com.sweettreats.SweetTreats.repository.*;
+import com.sweettreats.SweetTreats.util.HyperLogLog;
+import com.sweettreats.SweetTreats.util.LogHistogram;
+import com.sweettreats.SweetTreats.util.Lttb;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+// Todo es lectura: con réplica configurada las consultas de reportes no compiten con el checkout
 @Service
+@Transactional(readOnly = true)
 public class ReportsServiceImpl {
 
     private final OrderRepository orderRepo;
     private final ProductRepository productRepo;
+    private final DailySalesRollup rollup;
+    private final SalesCube cube;
+    private final TopProductsTracker topTracker;
+    private final TicketHistograms ticketHistograms;
+    private final BuyerSketches buyerSketches;
+    private final ReportCache cache;
+    private final ExecutorService kpiExecutor;
+    private final TransactionTemplate lectura;
+    private final Bulkheads bulkheads;
+    private final int puntosTendencia;
+    private final long dashboardTimeoutMillis;
 
-    public ReportsServiceImpl(OrderRepository orderRepo, ProductRepository productRepo) {
+    public ReportsServiceImpl(OrderRepository orderRepo,
+                              ProductRepository productRepo,
+                              DailySalesRollup rollup,
+                              SalesCube cube,
+                              TopProductsTracker topTracker,
+                              TicketHistograms ticketHistograms,
+                              BuyerSketches buyerSketches,
+                              ReportCache cache,
+                              PlatformTransactionManager transactionManager,
+                              Bulkheads bulkheads,
+                              @Value("${app.reports.dashboard.threads:4}") int hilos,
+                              @Value("${app.reports.dashboard.queue:64}") int cola,
+                              @Value("${app.reports.dashboard.timeout-ms:10000}") long dashboardTimeoutMillis,
+                              @Value("${app.reports.trend.points:300}") int puntosTendencia) {
         this.orderRepo = orderRepo;
         this.productRepo = productRepo;
+        this.rollup = rollup;
+        this.cube = cube;
+        this.topTracker = topTracker;
+        this.ticketHistograms = ticketHistograms;
+        this.buyerSketches = buyerSketches;
+        this.cache = cache;
+        this.dashboardTimeoutMillis = dashboardTimeoutMillis;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.bulkheads = bulkheads;
+        this.puntosTendencia = puntosTendencia;
+        // Pool acotado: como mucho `hilos` conexiones para KPIs a la vez; si la cola se
+        // llena, el hilo del request calcula el KPI él mismo en vez de fallar
+        AtomicInteger n = new AtomicInteger();
+        this.kpiExecutor = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                r -> {
+                    Thread t = new Thread(r, "reports-kpi-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void detener() {
+        kpiExecutor.shutdownNow();
     }
 
     private LocalDateTime since(String period) {
@@ -30,47 +98,297 @@ public class ReportsServiceImpl {
         };
     }
 
+    // Los períodos empiezan siempre a las 00:00, así que se pueden responder por día:
+    // primero el SalesCube en memoria, si no daily_sales_rollup, y si no las consultas sobre orders
+    private double sumSince(LocalDateTime since) {
+        if (cube.disponible()) {
+            return cube.resumenDesde(since.toLocalDate()).total().doubleValue();
+        }
+        if (!rollup.disponible()) {
+            return orderRepo.sumSalesSince(since);
+        }
+        return rollup.resumenDesde(since.toLocalDate()).total().doubleValue();
+    }
+
+    // La clave lleva el día de inicio: al cambiar de día "today" o "week" son otra entrada
+    private <T> T cacheado(String reporte, String period, LocalDate dependeDesde, Supplier<T> calculo) {
+        return cache.obtener(reporte, period + "@" + since(period).toLocalDate(), cache.ttlPara(period),
+                ReportCache.Dependencia.ventas(dependeDesde), calculo);
+    }
+
     public SalesTotalDto getSalesTotal(String period) {
-        double total = orderRepo.sumSalesSince(since(period));
-        return new SalesTotalDto(total);
+        LocalDateTime s = since(period);
+        return cacheado("sales", period, s.toLocalDate(), () -> new SalesTotalDto(sumSince(s)));
     }
 
     public TrendDto getSalesTrend(String period) {
+        return getSalesTrend(period, "day");
+    }
+
+    public TrendDto getSalesTrend(String period, String granularity) {
+        return getSalesTrend(period, granularity, puntosTendencia);
+    }
+
+    // granularity "hour" agrupa por hora: para "today" da una curva en vez de un solo punto.
+    // points acota la serie con LTTB (0 = completa); se cachea la serie entera y se reduce
+    // por pedido, así distintos tamaños de gráfico comparten la entrada
+    public TrendDto getSalesTrend(String period, String granularity, int points) {
+        if (points < 0 || points == 1 || points == 2) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "points debe ser 0 o al menos 3");
+        }
         LocalDateTime s = since(period);
-        var rows = orderRepo.sumSalesGroupByDay(s);
-        List<String> labels = new ArrayList<>();
-        List<Double> data   = new ArrayList<>();
-        for (var r : rows) {
-            labels.add((String) r[0]);
-            data.add(((Number) r[1]).doubleValue());
+        Serie serie = switch (granularity) {
+            case "day"  -> cacheado("trend", period, s.toLocalDate(), () -> calcularTrend(s));
+            case "hour" -> cacheado("trend-hour", period, s.toLocalDate(), () -> calcularTrendPorHora(s));
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity debe ser day u hour");
+        };
+        return serie.muestrear(points == 0 ? Integer.MAX_VALUE : points);
+    }
+
+    // Serie completa en arrays primitivos; x es el día (u hora) desde epoch, así los
+    // días sin ventas, que no vienen en la serie, cuentan como distancia para LTTB
+    private record Serie(String[] etiquetas, double[] x, double[] y) {
+
+        static Serie deDias(Map<LocalDate, BigDecimal> dias) {
+            Serie serie = new Serie(new String[dias.size()], new double[dias.size()], new double[dias.size()]);
+            int i = 0;
+            for (var e : dias.entrySet()) {
+                serie.etiquetas[i] = e.getKey().toString();
+                serie.x[i] = e.getKey().toEpochDay();
+                serie.y[i] = e.getValue().doubleValue();
+                i++;
+            }
+            return serie;
         }
-        return new TrendDto(labels, data);
+
+        TrendDto muestrear(int puntos) {
+            int[] elegidos = Lttb.seleccionar(x, y, puntos);
+            List<String> labels = new ArrayList<>(elegidos.length);
+            List<Double> data   = new ArrayList<>(elegidos.length);
+            for (int i : elegidos) {
+                labels.add(etiquetas[i]);
+                data.add(y[i]);
+            }
+            return new TrendDto(labels, data);
+        }
+    }
+
+    private Serie calcularTrendPorHora(LocalDateTime s) {
+        List<Object[]> rows = orderRepo.sumSalesGroupByHour(s);
+        Serie serie = new Serie(new String[rows.size()], new double[rows.size()], new double[rows.size()]);
+        for (int i = 0; i < rows.size(); i++) {
+            LocalDateTime hora = (LocalDateTime) rows.get(i)[0];
+            serie.etiquetas()[i] = hora.toString();
+            serie.x()[i] = hora.toEpochSecond(ZoneOffset.UTC) / 3600;
+            serie.y()[i] = ((Number) rows.get(i)[1]).doubleValue();
+        }
+        return serie;
+    }
+
+    private Serie calcularTrend(LocalDateTime s) {
+        if (cube.disponible()) {
+            return Serie.deDias(cube.ventasPorDia(s.toLocalDate()));
+        }
+        if (rollup.disponible()) {
+            return Serie.deDias(rollup.ventasPorDia(s.toLocalDate()));
+        }
+        List<Object[]> rows = orderRepo.sumSalesGroupByDay(s.toLocalDate());
+        Serie serie = new Serie(new String[rows.size()], new double[rows.size()], new double[rows.size()]);
+        for (int i = 0; i < rows.size(); i++) {
+            LocalDate dia = (LocalDate) rows.get(i)[0];
+            serie.etiquetas()[i] = dia.toString();
+            serie.x()[i] = dia.toEpochDay();
+            serie.y()[i] = ((Number) rows.get(i)[1]).doubleValue();
+        }
+        return serie;
     }
 
     public SalesTotalDto getTicketAverage(String period) {
-        double avg = orderRepo.avgTicketSince(since(period));
+        LocalDateTime s = since(period);
+        return cacheado("ticket", period, s.toLocalDate(), () -> calcularTicket(s));
+    }
+
+    private SalesTotalDto calcularTicket(LocalDateTime since) {
+        if (cube.disponible()) {
+            SalesCube.Resumen r = cube.resumenDesde(since.toLocalDate());
+            return new SalesTotalDto(r.pedidos() > 0 ? r.total().doubleValue() / r.pedidos() : 0);
+        }
+        if (!rollup.disponible()) {
+            return new SalesTotalDto(orderRepo.avgTicketSince(since));
+        }
+        DailySalesRollup.Resumen r = rollup.resumenDesde(since.toLocalDate());
+        double avg = r.pedidos() > 0 ? r.total().doubleValue() / r.pedidos() : 0;
         return new SalesTotalDto(avg);
     }
 
+    public TicketPercentilesDto getTicketPercentiles(String period) {
+        LocalDateTime s = since(period);
+        return cacheado("ticket-percentiles", period, s.toLocalDate(), () -> {
+            LogHistogram h = histogramaTickets(period, s);
+            return new TicketPercentilesDto(period, h.total(),
+                    h.cuantil(0.50) / 100.0, h.cuantil(0.90) / 100.0, h.cuantil(0.99) / 100.0, h.maximo() / 100.0);
+        });
+    }
+
+    private LogHistogram histogramaTickets(String period, LocalDateTime since) {
+        if (ticketHistograms.disponible()) {
+            LogHistogram h = ticketHistograms.desde("all".equals(period) ? LocalDate.MIN : since.toLocalDate());
+            if (h != null) {
+                return h;
+            }
+        }
+        LogHistogram h = new LogHistogram();
+        for (Object[] r : orderRepo.countTicketsByTotalSince(since)) {
+            h.agregar(TicketHistograms.aCentavos((BigDecimal) r[0]), ((Number) r[1]).longValue());
+        }
+        return h;
+    }
+
+    public UniqueCustomersDto getUniqueCustomers(String period) {
+        LocalDateTime s = since(period);
+        return cacheado("unique-customers", period, s.toLocalDate(), () -> {
+            if (buyerSketches.disponible()) {
+                return new UniqueCustomersDto(period, buyerSketches.desde(s.toLocalDate()).compradores(),
+                        HyperLogLog.ERROR_ESTANDAR);
+            }
+            return new UniqueCustomersDto(period, orderRepo.countDistinctBuyersSince(s), 0);
+        });
+    }
+
+    public RepeatRateDto getRepeatRate(String period) {
+        LocalDateTime s = since(period);
+        return cacheado("repeat-rate", period, s.toLocalDate(), () -> {
+            long compradores;
+            long recurrentes;
+            double error;
+            if (buyerSketches.disponible()) {
+                BuyerSketches.Estimacion e = buyerSketches.desde(s.toLocalDate());
+                // Dos estimaciones independientes: la recurrente no puede superar al total
+                compradores = e.compradores();
+                recurrentes = Math.min(e.recurrentes(), compradores);
+                error = HyperLogLog.ERROR_ESTANDAR * Math.sqrt(2);
+            } else {
+                compradores = orderRepo.countDistinctBuyersSince(s);
+                recurrentes = orderRepo.countRepeatBuyersSince(s);
+                error = 0;
+            }
+            double tasa = compradores > 0 ? (double) recurrentes / compradores : 0;
+            return new RepeatRateDto(period, compradores, recurrentes, tasa, error);
+        });
+    }
+
+    // Compara [since, hoy] con los mismos días del año anterior: [since - 1 año, hoy - 1 año]
     public SalesGrowthDto getSalesGrowth(String period) {
-        LocalDateTime nowSince      = since(period);
-        LocalDateTime lastYearSince = nowSince.minusYears(1);
-        double thisP = orderRepo.sumSalesSince(nowSince);
-        double lastY = orderRepo.sumSalesSince(lastYearSince);
-        return new SalesGrowthDto(thisP, lastY);
+        LocalDate nowSince = since(period).toLocalDate();
+        return cacheado("growth", period, nowSince.minusYears(1), () -> calcularGrowth(nowSince));
     }
 
-    public List<ProductStatDto> getTopProducts() {
-        return productRepo.findTopProducts(PageRequest.of(0, 10));
+    private SalesGrowthDto calcularGrowth(LocalDate nowSince) {
+        LocalDate lastYearSince = nowSince.minusYears(1);
+        LocalDate lastYearUntil = LocalDate.now().minusYears(1).plusDays(1);
+        if (cube.disponible()) {
+            double thisP = cube.resumenDesde(nowSince).total().doubleValue();
+            double lastY = cube.resumenEntre(lastYearSince, lastYearUntil).total().doubleValue();
+            return new SalesGrowthDto(thisP, lastY);
+        }
+        Object[] r = orderRepo.sumSalesGrowth(
+                nowSince.atStartOfDay(), lastYearSince.atStartOfDay(), lastYearUntil.atStartOfDay()).get(0);
+        return new SalesGrowthDto(((Number) r[0]).doubleValue(), ((Number) r[1]).doubleValue());
+    }
+
+    // Sin transacción propia: el hilo del request solo espera, las conexiones las toman los KPIs
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DashboardDto getDashboard(String period, int lowStockThreshold, int noSalesDays) {
+        CompletableFuture<SalesTotalDto> total     = kpi(() -> getSalesTotal(period));
+        CompletableFuture<TrendDto> trend          = kpi(() -> getSalesTrend(period, "today".equals(period) ? "hour" : "day"));
+        CompletableFuture<SalesTotalDto> ticket    = kpi(() -> getTicketAverage(period));
+        CompletableFuture<SalesGrowthDto> growth   = kpi(() -> getSalesGrowth(period));
+        CompletableFuture<List<ProductStatDto>> top = kpi(() -> getTopProducts(period, false));
+        CompletableFuture<List<ProductModel>> low  = kpi(() -> getLowStock(lowStockThreshold));
+        CompletableFuture<List<ProductModel>> none = kpi(() -> getNoSales(noSalesDays));
+
+        try {
+            CompletableFuture.allOf(total, trend, ticket, growth, top, low, none)
+                    .get(dashboardTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Los reportes tardaron demasiado");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Solicitud interrumpida");
+        }
+
+        return new DashboardDto(
+                period,
+                total.join().total(),
+                trend.join(),
+                ticket.join().total(),
+                growth.join(),
+                top.join(),
+                low.join(),
+                none.join());
+    }
+
+    private <T> CompletableFuture<T> kpi(Supplier<T> calculo) {
+        // Los hilos del pool no heredan la transacción ni el compartimento del request
+        return CompletableFuture.supplyAsync(
+                () -> bulkheads.en(Bulkheads.Compartimento.REPORTES, () -> lectura.execute(status -> calculo.get())),
+                kpiExecutor);
+    }
+
+    // exact=true salta el cache y las estructuras en memoria: sirve para verificarlas
+    public List<ProductStatDto> getTopProducts(String period, boolean exact) {
+        LocalDateTime s = since(period);
+        if (exact) {
+            return productRepo.findTopProductsSince(s, PageRequest.of(0, 10));
+        }
+        return cache.obtener("top-products", period + "@" + s.toLocalDate(), cache.ttlPara(period),
+                ReportCache.Dependencia.ventasYProductos(s.toLocalDate()), () -> calcularTopProducts(period, s));
+    }
+
+    private List<ProductStatDto> calcularTopProducts(String period, LocalDateTime since) {
+        boolean ventana = !"all".equals(period) && !since.isBefore(LocalDate.now().minusYears(1).atStartOfDay());
+        if (ventana && topTracker.disponible()) {
+            return topTracker.top(since.toLocalDate(), 10);
+        }
+        if (!ventana && cube.disponible()) {
+            return cube.top(10);
+        }
+        return productRepo.findTopProductsSince(since, PageRequest.of(0, 10));
     }
 
     public List<ProductModel> getLowStock(int threshold) {
-        return productRepo.findByStockLessThan(threshold);
+        return cache.obtener("low-stock", Integer.toString(threshold), cache.ttlPorDefecto(),
+                ReportCache.Dependencia.soloProductos(), () -> productRepo.findByStockLessThan(threshold));
     }
 
     public List<ProductModel> getNoSales(int days) {
         LocalDateTime since = LocalDateTime.now().minusDays(days);
+        return cache.obtener("no-sales", days + "@" + since.toLocalDate(), cache.ttlPorDefecto(),
+                ReportCache.Dependencia.ventasYProductos(since.toLocalDate()), () -> calcularNoSales(since));
+    }
+
+    // Rango sobre products.last_sold_at: no depende de cuántas líneas de pedido haya
+    private List<ProductModel> calcularNoSales(LocalDateTime since) {
         return productRepo.findNoSalesSince(since);
     }
+
+    // Compara el cubo contra la primaria: en la réplica el retraso se vería como diferencia
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CubeConsistencyDto checkCubeConsistency() {
+        return cube.verificar();
+    }
+
+    public ReportCacheStatsDto getCacheStats() {
+        return cache.estadisticas();
+    }
+
+    public List<BulkheadStatsDto> getBulkheadStats() {
+        return bulkheads.estadisticas();
+    }
 }
 
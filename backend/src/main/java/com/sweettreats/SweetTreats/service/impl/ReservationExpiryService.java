@@ -0,0 +1,100 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.event.OrderChangedEvent;
+import com.sweettreats.SweetTreats.model.OrderEnum;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import com.sweettreats.SweetTreats.service.OrderService;
+import com.sweettreats.SweetTreats.util.HierarchicalTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Vence los pedidos PENDIENTE cuya reserva de stock superó app.orders.reservation-ttl.
+ * Los vencimientos viven en un timing wheel en memoria (no se consulta la tabla orders
+ * periódicamente) que se reconstruye desde la base al arrancar.
+ * El plazo corre desde que el pedido quedó PENDIENTE: la creación o, si se reactivó un
+ * pedido cancelado, el momento de la reactivación.
+ * Sin la propiedad configurada el servicio no se registra.
+ */
+@Service
+@ConditionalOnProperty(name = "app.orders.reservation-ttl")
+public class ReservationExpiryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationExpiryService.class);
+    private static final int LOTE = 500;
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final Duration ttl;
+    private final HierarchicalTimingWheel wheel;
+
+    public ReservationExpiryService(OrderService orderService,
+                                    OrderRepository orderRepository,
+                                    @Value("${app.orders.reservation-ttl}") Duration ttl,
+                                    @Value("${app.orders.reservation-tick-ms:1000}") long tickMillis) {
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        this.ttl = ttl;
+        // 4 niveles de 256 ranuras: con tick de 1s cubre más de 100 años
+        this.wheel = new HierarchicalTimingWheel(tickMillis, 8, 4, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        // updatedAt es la creación o la última transición, que para un PENDIENTE es la que lo reactivó
+        List<Object[]> pendientes = orderRepository.findIdAndUpdatedAtByEstado(OrderEnum.PENDIENTE);
+        synchronized (wheel) {
+            for (Object[] fila : pendientes) {
+                wheel.schedule((Long) fila[0], vencimiento((LocalDateTime) fila[1]));
+            }
+        }
+        log.info("Reservas pendientes reprogramadas: {}", pendientes.size());
+    }
+
+    @TransactionalEventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        synchronized (wheel) {
+            if (event.estado() == OrderEnum.PENDIENTE) {
+                LocalDateTime desde = event.esCreacion() ? event.createdAt() : LocalDateTime.now();
+                wheel.schedule(event.orderId(), vencimiento(desde));
+            } else {
+                wheel.cancel(event.orderId());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.orders.reservation-tick-ms:1000}")
+    public void vencer() {
+        List<Long> vencidos;
+        synchronized (wheel) {
+            vencidos = wheel.advance(System.currentTimeMillis());
+        }
+        for (int i = 0; i < vencidos.size(); i += LOTE) {
+            List<Long> lote = vencidos.subList(i, Math.min(i + LOTE, vencidos.size()));
+            try {
+                orderService.expirarPedidos(lote);
+            } catch (RuntimeException ex) {
+                log.warn("No se pudieron vencer {} pedidos, se reintenta en el próximo tick", lote.size(), ex);
+                synchronized (wheel) {
+                    lote.forEach(id -> wheel.schedule(id, System.currentTimeMillis()));
+                }
+            }
+        }
+    }
+
+    private long vencimiento(LocalDateTime pendienteDesde) {
+        return pendienteDesde.plus(ttl).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
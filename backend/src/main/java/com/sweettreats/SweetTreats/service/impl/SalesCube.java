@@ -0,0 +1,344 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.dto.CubeConsistencyDto;
+import com.sweettreats.SweetTreats.dto.OrderLineDto;
+import com.sweettreats.SweetTreats.dto.ProductStatDto;
+import com.sweettreats.SweetTreats.event.SalesDeltaEvent;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cubo de ventas en memoria: recaudación y cantidad de pedidos por día, y cantidad y
+ * recaudación por producto, en arrays primitivos. Se carga desde MySQL al arrancar y
+ * después se mantiene con los SalesDeltaEvent confirmados, así los reportes se resuelven
+ * recorriendo arrays sin ir a la base. Montos en centavos (long).
+ *
+ * Los días sirven total, tendencia, ticket promedio y crecimiento; los totales por producto,
+ * el top histórico. No guarda celdas día × producto: el top por ventana lo resuelve
+ * TopProductsTracker y sin ventas necesita las filas completas de products de todos modos.
+ *
+ * Memoria: 16 bytes por día y 16 por producto. Solo ve los pedidos de esta instancia:
+ * con varias instancias hay que desactivarlo (app.reports.cube.enabled=false) o vigilar
+ * /cube/consistency.
+ */
+@Service
+public class SalesCube {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesCube.class);
+
+    private static final int MAX_DIFERENCIAS = 50;
+    private static final int MARGEN_DIAS = 31;
+
+    public record Resumen(BigDecimal total, long pedidos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitado;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Todo lo que sigue se protege con lock
+    private LocalDate inicio;
+    private int dias;
+    private int productos;
+    private long[] pedidosDia;
+    private long[] centavosDia;
+    private long[] cantidadProducto;
+    private long[] centavosProducto;
+    private long[] productIds;
+    private String[] nombres;
+    private final Map<Long, Integer> indice = new HashMap<>();
+
+    private volatile boolean disponible;
+
+    // OrderRepository asegura que el esquema ya fue generado por Hibernate
+    public SalesCube(JdbcTemplate jdbcTemplate,
+                     OrderRepository orderRepository,
+                     @Value("${app.reports.cube.enabled:true}") boolean habilitado) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = habilitado;
+    }
+
+    // Antes de que el servidor acepte pedidos: no hay deltas concurrentes con la carga
+    @PostConstruct
+    public void cargar() {
+        if (!habilitado) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            LocalDate hoy = LocalDate.now();
+            Timestamp primero = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM orders", Timestamp.class);
+            LocalDate desde = primero != null ? primero.toLocalDateTime().toLocalDate() : hoy;
+            indice.clear();
+            inicio = desde;
+            dias = (int) ChronoUnit.DAYS.between(desde, hoy) + 1 + MARGEN_DIAS;
+            pedidosDia = new long[dias];
+            centavosDia = new long[dias];
+            productos = 0;
+            cantidadProducto = new long[16];
+            centavosProducto = new long[16];
+            productIds = new long[16];
+            nombres = new String[16];
+
+            jdbcTemplate.query("SELECT id, nombre FROM products ORDER BY id",
+                    rs -> {
+                        indiceDe(rs.getLong(1), rs.getString(2));
+                    });
+            jdbcTemplate.query(
+                    "SELECT d.product_model_id, SUM(d.cantidad), SUM(d.cantidad * d.precio_unitario) " +
+                    "FROM order_details d JOIN orders o ON o.id = d.order_model_id " +
+                    "WHERE o.estado <> 'CANCELADO' GROUP BY d.product_model_id",
+                    rs -> {
+                        int p = indiceDe(rs.getLong(1), null);
+                        sumarLinea(p, rs.getLong(2), aCentavos(rs.getBigDecimal(3)));
+                    });
+            jdbcTemplate.query(
+                    "SELECT DATE(created_at), COUNT(*), SUM(total) FROM orders " +
+                    "WHERE estado <> 'CANCELADO' GROUP BY DATE(created_at)",
+                    rs -> {
+                        int dia = asegurarDia(rs.getDate(1).toLocalDate());
+                        pedidosDia[dia] += rs.getLong(2);
+                        centavosDia[dia] += aCentavos(rs.getBigDecimal(3));
+                    });
+            disponible = true;
+            log.info("SalesCube cargado: {} días, {} productos", dias, productos);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean disponible() {
+        return disponible;
+    }
+
+    // Antes que ReportCache: al invalidar, el cubo ya tiene que reflejar el delta
+    @EventListener
+    @Order(0)
+    public void onSalesDelta(SalesDeltaEvent event) {
+        if (!disponible) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (SalesDeltaEvent.Venta v : event.ventas()) {
+                int dia = asegurarDia(v.createdAt().toLocalDate());
+                pedidosDia[dia] += v.signo();
+                centavosDia[dia] += v.signo() * aCentavos(v.total());
+                for (OrderLineDto l : v.lineas()) {
+                    int p = indiceDe(l.productId(), l.productName());
+                    long subtotal = aCentavos(l.precioUnitario().multiply(BigDecimal.valueOf(l.cantidad())));
+                    sumarLinea(p, (long) v.signo() * l.cantidad(), v.signo() * subtotal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Recaudación y cantidad de pedidos desde el día indicado (inclusive) hasta hoy. */
+    public Resumen resumenDesde(LocalDate desde) {
+        return resumenEntre(desde, LocalDate.now().plusDays(1));
+    }
+
+    /** Recaudación y cantidad de pedidos de los días [desde, hasta). */
+    public Resumen resumenEntre(LocalDate desde, LocalDate hasta) {
+        lock.readLock().lock();
+        try {
+            long pedidos = 0, cents = 0;
+            for (int d = primerIndice(desde), fin = primerIndice(hasta); d < fin; d++) {
+                pedidos += pedidosDia[d];
+                cents += centavosDia[d];
+            }
+            return new Resumen(BigDecimal.valueOf(cents, 2), pedidos);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Recaudación por día desde el día indicado; solo días con pedidos. */
+    public SortedMap<LocalDate, BigDecimal> ventasPorDia(LocalDate desde) {
+        lock.readLock().lock();
+        try {
+            SortedMap<LocalDate, BigDecimal> resultado = new TreeMap<>();
+            for (int d = primerIndice(desde); d < dias; d++) {
+                if (pedidosDia[d] > 0) {
+                    resultado.put(inicio.plusDays(d), BigDecimal.valueOf(centavosDia[d], 2));
+                }
+            }
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Productos más vendidos por cantidad, agrupados por id como la consulta SQL; empate por id. */
+    public List<ProductStatDto> top(int n) {
+        lock.readLock().lock();
+        try {
+            List<Integer> conVentas = new ArrayList<>();
+            for (int p = 0; p < productos; p++) {
+                if (cantidadProducto[p] > 0) {
+                    conVentas.add(p);
+                }
+            }
+            return conVentas.stream()
+                    .sorted((a, b) -> cantidadProducto[a] != cantidadProducto[b]
+                            ? Long.compare(cantidadProducto[b], cantidadProducto[a])
+                            : Long.compare(productIds[a], productIds[b]))
+                    .limit(n)
+                    .map(p -> new ProductStatDto(productIds[p], nombres[p], cantidadProducto[p],
+                            BigDecimal.valueOf(centavosProducto[p], 2)))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Compara el cubo con las mismas agregaciones en SQL: por día y por producto. */
+    public CubeConsistencyDto verificar() {
+        if (!disponible) {
+            return new CubeConsistencyDto(false, 0, 0, List.of("El cubo no está disponible"));
+        }
+        Map<LocalDate, long[]> sqlDias = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT DATE(created_at), COUNT(*), SUM(total) FROM orders " +
+                "WHERE estado <> 'CANCELADO' GROUP BY DATE(created_at)",
+                rs -> {
+                    sqlDias.put(rs.getDate(1).toLocalDate(), new long[]{rs.getLong(2), aCentavos(rs.getBigDecimal(3))});
+                });
+        Map<Long, long[]> sqlProductos = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT d.product_model_id, SUM(d.cantidad), SUM(d.cantidad * d.precio_unitario) " +
+                "FROM order_details d JOIN orders o ON o.id = d.order_model_id " +
+                "WHERE o.estado <> 'CANCELADO' GROUP BY d.product_model_id",
+                rs -> {
+                    sqlProductos.put(rs.getLong(1), new long[]{rs.getLong(2), aCentavos(rs.getBigDecimal(3))});
+                });
+
+        List<String> diferencias = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<LocalDate> todosLosDias = new TreeSet<>(sqlDias.keySet());
+            for (int d = 0; d < dias; d++) {
+                if (pedidosDia[d] != 0 || centavosDia[d] != 0) {
+                    todosLosDias.add(inicio.plusDays(d));
+                }
+            }
+            for (LocalDate dia : todosLosDias) {
+                long[] sql = sqlDias.getOrDefault(dia, new long[2]);
+                int d = (int) ChronoUnit.DAYS.between(inicio, dia);
+                long pedidos = d >= 0 && d < dias ? pedidosDia[d] : 0;
+                long cents = d >= 0 && d < dias ? centavosDia[d] : 0;
+                if (sql[0] != pedidos || sql[1] != cents) {
+                    agregar(diferencias, "día " + dia + ": cubo " + pedidos + " pedidos/" + BigDecimal.valueOf(cents, 2)
+                            + ", SQL " + sql[0] + " pedidos/" + BigDecimal.valueOf(sql[1], 2));
+                }
+            }
+
+            Set<Long> todosLosProductos = new TreeSet<>(sqlProductos.keySet());
+            for (int p = 0; p < productos; p++) {
+                if (cantidadProducto[p] != 0 || centavosProducto[p] != 0) {
+                    todosLosProductos.add(productIds[p]);
+                }
+            }
+            for (Long id : todosLosProductos) {
+                long[] sql = sqlProductos.getOrDefault(id, new long[2]);
+                Integer p = indice.get(id);
+                long cant = p != null ? cantidadProducto[p] : 0;
+                long cents = p != null ? centavosProducto[p] : 0;
+                if (sql[0] != cant || sql[1] != cents) {
+                    agregar(diferencias, "producto " + id + ": cubo " + cant + " u./" + BigDecimal.valueOf(cents, 2)
+                            + ", SQL " + sql[0] + " u./" + BigDecimal.valueOf(sql[1], 2));
+                }
+            }
+            return new CubeConsistencyDto(diferencias.isEmpty(), todosLosDias.size(), todosLosProductos.size(), diferencias);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void agregar(List<String> diferencias, String diferencia) {
+        if (diferencias.size() < MAX_DIFERENCIAS) {
+            diferencias.add(diferencia);
+        }
+    }
+
+    private int primerIndice(LocalDate desde) {
+        long d = ChronoUnit.DAYS.between(inicio, desde);
+        return (int) Math.max(0, Math.min(d, dias));
+    }
+
+    private void sumarLinea(int p, long unidades, long cents) {
+        cantidadProducto[p] += unidades;
+        centavosProducto[p] += cents;
+    }
+
+    private int asegurarDia(LocalDate dia) {
+        long d = ChronoUnit.DAYS.between(inicio, dia);
+        if (d < 0) {
+            redimensionarDias(dia, dias + (int) -d);
+            return 0;
+        }
+        if (d >= dias) {
+            redimensionarDias(inicio, (int) d + 1 + MARGEN_DIAS);
+        }
+        return (int) d;
+    }
+
+    private int indiceDe(long productId, String nombre) {
+        Integer p = indice.get(productId);
+        if (p != null) {
+            if (nombre != null) {
+                nombres[p] = nombre;
+            }
+            return p;
+        }
+        if (productos == productIds.length) {
+            redimensionarProductos(productos * 2);
+        }
+        int nuevo = productos++;
+        indice.put(productId, nuevo);
+        productIds[nuevo] = productId;
+        nombres[nuevo] = nombre != null ? nombre : "Producto " + productId;
+        return nuevo;
+    }
+
+    // nuevoInicio <= inicio: los días nunca se descartan
+    private void redimensionarDias(LocalDate nuevoInicio, int nuevosDias) {
+        int corrimiento = (int) ChronoUnit.DAYS.between(nuevoInicio, inicio);
+        long[] pedDia = new long[nuevosDias];
+        long[] centDia = new long[nuevosDias];
+        System.arraycopy(pedidosDia, 0, pedDia, corrimiento, dias);
+        System.arraycopy(centavosDia, 0, centDia, corrimiento, dias);
+        inicio = nuevoInicio;
+        dias = nuevosDias;
+        pedidosDia = pedDia;
+        centavosDia = centDia;
+    }
+
+    private void redimensionarProductos(int nuevoCap) {
+        cantidadProducto = Arrays.copyOf(cantidadProducto, nuevoCap);
+        centavosProducto = Arrays.copyOf(centavosProducto, nuevoCap);
+        productIds = Arrays.copyOf(productIds, nuevoCap);
+        nombres = Arrays.copyOf(nombres, nuevoCap);
+    }
+
+    private static long aCentavos(BigDecimal monto) {
+        return monto == null ? 0 : monto.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
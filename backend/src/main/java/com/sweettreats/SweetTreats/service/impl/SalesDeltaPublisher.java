@@ -0,0 +1,94 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.dto.OrderLineDto;
+import com.sweettreats.SweetTreats.event.OrderChangedEvent;
+import com.sweettreats.SweetTreats.event.SalesDeltaEvent;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Traduce los OrderChangedEvent que mueven ventas en un único SalesDeltaEvent por
+ * transacción confirmada, con las líneas de todos los pedidos traídas en una sola
+ * consulta. Así un lote (group-commit, cambio masivo, vencimientos) cuesta un SELECT
+ * y cada consumidor en memoria no tiene que ir a la base por su cuenta.
+ */
+@Service
+public class SalesDeltaPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesDeltaPublisher.class);
+
+    private final OrderRepository orderRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public SalesDeltaPublisher(OrderRepository orderRepository, ApplicationEventPublisher eventPublisher) {
+        this.orderRepository = orderRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.signoVenta() == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publicar(List.of(event));
+            return;
+        }
+        pendientes().add(event);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OrderChangedEvent> pendientes() {
+        List<OrderChangedEvent> eventos = (List<OrderChangedEvent>) TransactionSynchronizationManager.getResource(this);
+        if (eventos == null) {
+            List<OrderChangedEvent> nuevos = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, nuevos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        publicar(nuevos);
+                    } catch (RuntimeException e) {
+                        // El pedido ya está confirmado; los consumidores se corrigen con su verificación
+                        log.warn("No se pudo publicar el delta de ventas de {} pedidos", nuevos.size(), e);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SalesDeltaPublisher.this);
+                }
+            });
+            eventos = nuevos;
+        }
+        return eventos;
+    }
+
+    private void publicar(List<OrderChangedEvent> eventos) {
+        List<Long> ids = eventos.stream().map(OrderChangedEvent::orderId).collect(Collectors.toList());
+        Map<Long, List<OrderLineDto>> lineas = orderRepository.findLines(ids).stream()
+                .collect(Collectors.groupingBy(OrderLineDto::orderId));
+
+        List<SalesDeltaEvent.Venta> ventas = eventos.stream()
+                .map(e -> new SalesDeltaEvent.Venta(
+                        e.orderId(),
+                        e.userId(),
+                        e.createdAt(),
+                        e.total(),
+                        e.signoVenta(),
+                        lineas.getOrDefault(e.orderId(), List.of())))
+                .collect(Collectors.toList());
+        eventPublisher.publishEvent(new SalesDeltaEvent(ventas));
+    }
+}
@@ -0,0 +1,254 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.event.ProductChangedEvent;
+import com.sweettreats.SweetTreats.repository.ProductRepository;
+import com.sweettreats.SweetTreats.service.StockService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stock en memoria para ventas con mucha concurrencia sobre el mismo producto.
+ * Las reservas se resuelven con CAS sobre un contador por producto y solo dejan
+ * un INSERT en stock_movements dentro de la transacción del pedido; un flusher
+ * agrupa esos movimientos en UPDATEs por lotes sobre products. Al arrancar se
+ * aplica lo que haya quedado en el journal antes de cargar los contadores.
+ */
+@Service
+@ConditionalOnProperty(name = "app.stock.ledger.enabled", havingValue = "true")
+public class StockLedger implements StockService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    private static final String MOVIMIENTO_SQL =
+            "INSERT INTO stock_movements (product_id, delta, created_at) VALUES (?, ?, ?)";
+
+    private final ConcurrentHashMap<Long, AtomicInteger> disponibles = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int flushBatch;
+
+    // ProductRepository asegura que el esquema ya fue generado por Hibernate
+    public StockLedger(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       ProductRepository productRepository,
+                       ApplicationEventPublisher eventPublisher,
+                       @Value("${app.stock.ledger.flush-batch:5000}") int flushBatch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.flushBatch = flushBatch;
+    }
+
+    @PostConstruct
+    public void reconciliar() {
+        int aplicados;
+        do {
+            aplicados = flush();
+        } while (aplicados > 0);
+
+        disponibles.clear();
+        jdbcTemplate.query("SELECT id, stock FROM products", rs -> {
+            disponibles.put(rs.getLong(1), new AtomicInteger(rs.getInt(2)));
+        });
+        log.info("StockLedger inicializado con {} productos", disponibles.size());
+    }
+
+    @Override
+    public void reservar(Map<Long, Integer> cantidades, LocalDateTime vendidoEn) {
+        Map<Long, Integer> reservadas = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> e : new TreeMap<>(cantidades).entrySet()) {
+            if (!descontar(contador(e.getKey()), e.getValue())) {
+                devolver(reservadas);
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST,
+                        "Stock insuficiente para producto " + e.getKey()
+                );
+            }
+            reservadas.put(e.getKey(), e.getValue());
+        }
+
+        // Si la transacción del pedido no llega a commitear, las unidades vuelven al contador
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    devolver(reservadas);
+                }
+            }
+        });
+        registrarMovimientos(reservadas, -1, vendidoEn);
+    }
+
+    @Override
+    public void liberar(Map<Long, Integer> cantidades) {
+        registrarMovimientos(cantidades, 1, LocalDateTime.now());
+
+        // Las unidades solo quedan disponibles cuando la cancelación está confirmada
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    devolver(cantidades);
+                }
+            });
+        } else {
+            devolver(cantidades);
+        }
+    }
+
+    // La corrección del ADMIN va directo a products.stock como delta: conmuta con los
+    // movimientos pendientes del journal, que se aplican igual en el próximo flush. Quitar
+    // unidades se reserva ya, como una venta; sumar solo cuenta cuando la edición se confirma
+    @Override
+    public void ajustar(Long productId, int delta) {
+        Map<Long, Integer> unidades = Map.of(productId, Math.abs(delta));
+        if (delta < 0) {
+            if (!descontar(contador(productId), -delta)) {
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST,
+                        "El stock del producto " + productId + " no puede quedar negativo"
+                );
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        devolver(unidades);
+                    }
+                }
+            });
+        } else {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    devolver(unidades);
+                }
+            });
+        }
+        jdbcTemplate.update("UPDATE products SET stock = stock + ? WHERE id = ?", delta, productId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.ledger.flush-ms:500}")
+    public void flushProgramado() {
+        try {
+            if (flush() > 0) {
+                // products.stock cambió recién ahora: los reportes de stock se recalculan
+                eventPublisher.publishEvent(new ProductChangedEvent(null));
+            }
+        } catch (RuntimeException ex) {
+            log.warn("No se pudieron aplicar los movimientos de stock, se reintenta en el próximo ciclo", ex);
+        }
+    }
+
+    private record Movimiento(long id, long productId, int delta, Timestamp creado) {
+    }
+
+    // Neto por producto de un lote: delta de stock y fecha de la venta más reciente (o null)
+    private static final class Neto {
+        long delta;
+        Timestamp ultimaVenta;
+    }
+
+    // Aplica un lote del journal a products y lo borra en la misma transacción.
+    // Las unidades vendidas se mueven al revés que el stock; last_sold_at solo con ventas
+    int flush() {
+        Integer aplicados = transactionTemplate.execute(status -> {
+            List<Movimiento> movimientos = jdbcTemplate.query(
+                    "SELECT id, product_id, delta, created_at FROM stock_movements ORDER BY id LIMIT ?",
+                    (rs, i) -> new Movimiento(rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getTimestamp(4)),
+                    flushBatch);
+            if (movimientos.isEmpty()) {
+                return 0;
+            }
+
+            Map<Long, Neto> netos = new TreeMap<>();
+            for (Movimiento m : movimientos) {
+                Neto n = netos.computeIfAbsent(m.productId(), k -> new Neto());
+                n.delta += m.delta();
+                if (m.delta() < 0 && (n.ultimaVenta == null || m.creado().after(n.ultimaVenta))) {
+                    n.ultimaVenta = m.creado();
+                }
+            }
+            List<Map.Entry<Long, Neto>> filas = new ArrayList<>(netos.entrySet());
+            jdbcTemplate.batchUpdate(
+                    "UPDATE products SET stock = stock + ?, unidades_vendidas = unidades_vendidas - ?, " +
+                    "last_sold_at = COALESCE(GREATEST(last_sold_at, ?), ?, last_sold_at) WHERE id = ?",
+                    filas, filas.size(), (ps, fila) -> {
+                        ps.setLong(1, fila.getValue().delta);
+                        ps.setLong(2, fila.getValue().delta);
+                        ps.setTimestamp(3, fila.getValue().ultimaVenta);
+                        ps.setTimestamp(4, fila.getValue().ultimaVenta);
+                        ps.setLong(5, fila.getKey());
+                    });
+            jdbcTemplate.batchUpdate("DELETE FROM stock_movements WHERE id = ?",
+                    movimientos, movimientos.size(), (ps, m) -> ps.setLong(1, m.id()));
+            return movimientos.size();
+        });
+        return aplicados == null ? 0 : aplicados;
+    }
+
+    private AtomicInteger contador(Long productId) {
+        AtomicInteger actual = disponibles.get(productId);
+        if (actual != null) {
+            return actual;
+        }
+        // Producto creado después del arranque: stock persistido más lo pendiente en el journal
+        Integer stock = jdbcTemplate.queryForObject("""
+                SELECT p.stock + COALESCE((SELECT SUM(m.delta) FROM stock_movements m WHERE m.product_id = p.id), 0)
+                FROM products p
+                WHERE p.id = ?
+                """, Integer.class, productId);
+        AtomicInteger previo = disponibles.putIfAbsent(productId, new AtomicInteger(stock == null ? 0 : stock));
+        return previo != null ? previo : disponibles.get(productId);
+    }
+
+    private boolean descontar(AtomicInteger contador, int cantidad) {
+        while (true) {
+            int actual = contador.get();
+            if (actual < cantidad) {
+                return false;
+            }
+            if (contador.compareAndSet(actual, actual - cantidad)) {
+                return true;
+            }
+        }
+    }
+
+    private void devolver(Map<Long, Integer> cantidades) {
+        cantidades.forEach((id, cantidad) -> contador(id).addAndGet(cantidad));
+    }
+
+    // created_at de una venta es la fecha del pedido: el flush la lleva a last_sold_at
+    private void registrarMovimientos(Map<Long, Integer> cantidades, int signo, LocalDateTime cuando) {
+        if (cantidades.isEmpty()) {
+            return;
+        }
+        Timestamp ahora = Timestamp.valueOf(cuando);
+        List<Map.Entry<Long, Integer>> filas = new ArrayList<>(cantidades.entrySet());
+        jdbcTemplate.batchUpdate(MOVIMIENTO_SQL, filas, filas.size(), (ps, fila) -> {
+            ps.setLong(1, fila.getKey());
+            ps.setInt(2, signo * fila.getValue());
+            ps.setTimestamp(3, ahora);
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.event.SalesDeltaEvent;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import com.sweettreats.SweetTreats.util.LogHistogram;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Distribución de totales de pedidos por día, en centavos, con un LogHistogram por día
+ * del último año más uno acumulado de todo el historial. Cada ventana consultada
+ * (desde cierto día hasta hoy) se arma una vez combinando los días y después se mantiene
+ * con los mismos deltas que los días, así un percentil sobre un año cuesta lo mismo que
+ * sobre un día: recorrer los buckets de un histograma.
+ */
+@Service
+public class TicketHistograms {
+
+    private static final Logger log = LoggerFactory.getLogger(TicketHistograms.class);
+
+    // Un año para atrás más hoy, incluso si el año cruza un 29 de febrero
+    private static final int DIAS = 367;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitado;
+
+    private final TreeMap<LocalDate, LogHistogram> porDia = new TreeMap<>();
+    private final Map<LocalDate, LogHistogram> ventanas = new HashMap<>();
+    private final LogHistogram historico = new LogHistogram();
+    private LocalDate diaDeVentanas;
+
+    private volatile boolean disponible;
+
+    // OrderRepository asegura que el esquema ya fue generado por Hibernate
+    public TicketHistograms(JdbcTemplate jdbcTemplate,
+                            OrderRepository orderRepository,
+                            @Value("${app.reports.ticket-histograms.enabled:true}") boolean habilitado) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = habilitado;
+    }
+
+    // Como el SalesCube: antes de aceptar pedidos, así ningún delta se cruza con la carga
+    @PostConstruct
+    public synchronized void cargar() {
+        if (!habilitado) {
+            return;
+        }
+        LocalDate limite = LocalDate.now().minusDays(DIAS - 1);
+        // Agrupado por monto: los tickets se repiten mucho y viaja una fila por valor distinto
+        jdbcTemplate.query(
+                "SELECT DATE(created_at), total, COUNT(*) FROM orders " +
+                "WHERE estado <> 'CANCELADO' GROUP BY DATE(created_at), total",
+                rs -> {
+                    LocalDate dia = rs.getDate(1).toLocalDate();
+                    long centavos = aCentavos(rs.getBigDecimal(2));
+                    long veces = rs.getLong(3);
+                    historico.agregar(centavos, veces);
+                    if (!dia.isBefore(limite)) {
+                        porDia.computeIfAbsent(dia, d -> new LogHistogram()).agregar(centavos, veces);
+                    }
+                });
+        disponible = true;
+        log.info("TicketHistograms cargado: {} pedidos, {} días recientes", historico.total(), porDia.size());
+    }
+
+    public boolean disponible() {
+        return disponible;
+    }
+
+    // Antes que ReportCache, igual que el cubo
+    @EventListener
+    @Order(0)
+    public synchronized void onSalesDelta(SalesDeltaEvent event) {
+        if (!disponible) {
+            return;
+        }
+        LocalDate limite = LocalDate.now().minusDays(DIAS - 1);
+        for (SalesDeltaEvent.Venta v : event.ventas()) {
+            LocalDate dia = v.createdAt().toLocalDate();
+            long centavos = aCentavos(v.total());
+            aplicar(historico, centavos, v.signo());
+            if (dia.isBefore(limite)) {
+                continue;
+            }
+            aplicar(porDia.computeIfAbsent(dia, d -> new LogHistogram()), centavos, v.signo());
+            ventanas.forEach((desde, h) -> {
+                if (!dia.isBefore(desde)) {
+                    aplicar(h, centavos, v.signo());
+                }
+            });
+        }
+    }
+
+    /**
+     * Histograma desde el día indicado hasta hoy; null si el día cae antes del último año
+     * (salvo LocalDate.MIN, que es todo el historial). Se devuelve una copia.
+     */
+    public synchronized LogHistogram desde(LocalDate desde) {
+        LogHistogram copia = new LogHistogram();
+        if (desde.equals(LocalDate.MIN)) {
+            copia.sumar(historico);
+            return copia;
+        }
+        LocalDate hoy = LocalDate.now();
+        if (desde.isBefore(hoy.minusDays(DIAS - 1))) {
+            return null;
+        }
+        if (!hoy.equals(diaDeVentanas)) {
+            // Día nuevo: las ventanas corrieron y lo que salió del año se descarta
+            porDia.headMap(hoy.minusDays(DIAS - 1)).clear();
+            ventanas.clear();
+            diaDeVentanas = hoy;
+        }
+        copia.sumar(ventanas.computeIfAbsent(desde, this::combinar));
+        return copia;
+    }
+
+    private LogHistogram combinar(LocalDate desde) {
+        LogHistogram h = new LogHistogram();
+        for (LogHistogram dia : porDia.tailMap(desde).values()) {
+            h.sumar(dia);
+        }
+        return h;
+    }
+
+    private static void aplicar(LogHistogram h, long centavos, int signo) {
+        if (signo > 0) {
+            h.agregar(centavos, 1);
+        } else {
+            h.restar(centavos, 1);
+        }
+    }
+
+    static long aCentavos(BigDecimal monto) {
+        return monto == null ? 0 : monto.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,219 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.dto.OrderLineDto;
+import com.sweettreats.SweetTreats.dto.ProductStatDto;
+import com.sweettreats.SweetTreats.event.ProductChangedEvent;
+import com.sweettreats.SweetTreats.event.SalesDeltaEvent;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import com.sweettreats.SweetTreats.util.SpaceSaving;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Productos más vendidos por ventana (today, week, month, year) sin agrupar order_details.
+ * Cada día del último año tiene un resumen Space-Saving por product id alimentado con las
+ * líneas confirmadas; una ventana es la unión de los días que cubre. Como en
+ * TicketHistograms, cada ventana consultada se combina una vez (o por día nuevo) y después
+ * se mantiene con lo que cada delta cambió en los contadores de su día, desalojos
+ * incluidos; un pedido solo obliga a reordenar los totales de las ventanas que toca.
+ *
+ * Con menos productos vendidos en un día que app.reports.top.capacity el resumen de ese
+ * día es exacto; si no, los contadores tienen la cota de error de Space-Saving.
+ * findTopProductsSince da el resultado exacto en SQL para comparar.
+ */
+@Service
+public class TopProductsTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(TopProductsTracker.class);
+
+    // Un año para atrás más hoy, incluso si el año cruza un 29 de febrero
+    private static final int DIAS = 367;
+    // Se guarda un top más largo que el que piden los reportes, por si cambia el límite
+    private static final int LARGO_TOP = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitado;
+    private final int capacidad;
+
+    private final TreeMap<LocalDate, SpaceSaving> porDia = new TreeMap<>();
+    // Totales por product id de cada ventana consultada: {unidades, centavos}
+    private final Map<LocalDate, Map<Long, long[]>> ventanas = new HashMap<>();
+    private final Map<LocalDate, List<ProductStatDto>> topPorInicio = new HashMap<>();
+    private final Map<Long, String> nombres = new ConcurrentHashMap<>();
+    private LocalDate diaDelTop;
+
+    private volatile boolean disponible;
+
+    // OrderRepository asegura que el esquema ya fue generado por Hibernate
+    public TopProductsTracker(JdbcTemplate jdbcTemplate,
+                              OrderRepository orderRepository,
+                              @Value("${app.reports.top.enabled:true}") boolean habilitado,
+                              @Value("${app.reports.top.capacity:256}") int capacidad) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = habilitado;
+        this.capacidad = capacidad;
+    }
+
+    // Como el SalesCube: antes de aceptar pedidos, así ningún delta se cruza con la carga
+    @PostConstruct
+    public synchronized void cargar() {
+        if (!habilitado) {
+            return;
+        }
+        LocalDate desde = LocalDate.now().minusDays(DIAS - 1);
+        porDia.clear();
+        ventanas.clear();
+        topPorInicio.clear();
+        jdbcTemplate.query("SELECT id, nombre FROM products", rs -> {
+            nombres.put(rs.getLong(1), rs.getString(2));
+        });
+        jdbcTemplate.query(
+                "SELECT DATE(o.created_at), d.product_model_id, SUM(d.cantidad), SUM(d.cantidad * d.precio_unitario) " +
+                "FROM order_details d JOIN orders o ON o.id = d.order_model_id " +
+                "WHERE o.created_at >= ? AND o.estado <> 'CANCELADO' " +
+                "GROUP BY DATE(o.created_at), d.product_model_id",
+                rs -> {
+                    resumen(rs.getDate(1).toLocalDate())
+                            .agregar(rs.getLong(2), rs.getLong(3), aCentavos(rs.getBigDecimal(4)));
+                },
+                Timestamp.valueOf(desde.atStartOfDay()));
+        disponible = true;
+        log.info("TopProductsTracker cargado: {} días con ventas", porDia.size());
+    }
+
+    public boolean disponible() {
+        return disponible;
+    }
+
+    // Antes que ReportCache, igual que el cubo
+    @EventListener
+    @Order(0)
+    public synchronized void onSalesDelta(SalesDeltaEvent event) {
+        if (!disponible) {
+            return;
+        }
+        LocalDate limite = LocalDate.now().minusDays(DIAS - 1);
+        for (SalesDeltaEvent.Venta v : event.ventas()) {
+            LocalDate dia = v.createdAt().toLocalDate();
+            if (dia.isBefore(limite)) {
+                continue;
+            }
+            SpaceSaving resumen = resumen(dia);
+            for (OrderLineDto l : v.lineas()) {
+                long centavos = aCentavos(l.precioUnitario().multiply(BigDecimal.valueOf(l.cantidad())));
+                SpaceSaving.Contador antes = resumen.contador(l.productId());
+                long cuentaAntes = antes != null ? antes.cuenta() : 0;
+                long centavosAntes = antes != null ? antes.centavos() : 0;
+                if (v.signo() > 0) {
+                    SpaceSaving.Contador desalojado = resumen.agregar(l.productId(), l.cantidad(), centavos);
+                    if (desalojado != null) {
+                        sumarAVentanas(dia, desalojado.id(), -desalojado.cuenta(), -desalojado.centavos());
+                    }
+                } else {
+                    resumen.restar(l.productId(), l.cantidad(), centavos);
+                }
+                SpaceSaving.Contador despues = resumen.contador(l.productId());
+                sumarAVentanas(dia, l.productId(),
+                        (despues != null ? despues.cuenta() : 0) - cuentaAntes,
+                        (despues != null ? despues.centavos() : 0) - centavosAntes);
+                nombres.putIfAbsent(l.productId(), l.productName());
+            }
+        }
+    }
+
+    // Lleva a las ventanas que incluyen el día lo que cambió el contador de un producto
+    private void sumarAVentanas(LocalDate dia, long productId, long cuenta, long centavos) {
+        if (cuenta == 0 && centavos == 0) {
+            return;
+        }
+        ventanas.forEach((desde, totales) -> {
+            if (dia.isBefore(desde)) {
+                return;
+            }
+            long[] acc = totales.computeIfAbsent(productId, k -> new long[2]);
+            acc[0] += cuenta;
+            acc[1] += centavos;
+            if (acc[0] <= 0) {
+                totales.remove(productId);
+            }
+            topPorInicio.remove(desde);
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.productId() == null) {
+            return;
+        }
+        List<String> nombre = jdbcTemplate.queryForList(
+                "SELECT nombre FROM products WHERE id = ?", String.class, event.productId());
+        if (!nombre.isEmpty()) {
+            nombres.put(event.productId(), nombre.get(0));
+            synchronized (this) {
+                // Solo cambian los nombres: los totales de las ventanas siguen valiendo
+                topPorInicio.clear();
+            }
+        }
+    }
+
+    /** Top n por unidades vendidas desde el día indicado (como mucho un año atrás) hasta hoy. */
+    public synchronized List<ProductStatDto> top(LocalDate desde, int n) {
+        LocalDate hoy = LocalDate.now();
+        if (!hoy.equals(diaDelTop)) {
+            // Día nuevo: las ventanas corrieron y lo que salió del año se descarta
+            porDia.headMap(hoy.minusDays(DIAS - 1)).clear();
+            ventanas.clear();
+            topPorInicio.clear();
+            diaDelTop = hoy;
+        }
+        List<ProductStatDto> top = topPorInicio.computeIfAbsent(desde,
+                d -> ordenar(ventanas.computeIfAbsent(d, this::combinar)));
+        return top.size() > n ? top.subList(0, n) : top;
+    }
+
+    private Map<Long, long[]> combinar(LocalDate desde) {
+        Map<Long, long[]> acumulado = new HashMap<>();
+        for (SpaceSaving resumen : porDia.tailMap(desde).values()) {
+            for (SpaceSaving.Contador c : resumen.contadores()) {
+                long[] acc = acumulado.computeIfAbsent(c.id(), k -> new long[2]);
+                acc[0] += c.cuenta();
+                acc[1] += c.centavos();
+            }
+        }
+        return acumulado;
+    }
+
+    private List<ProductStatDto> ordenar(Map<Long, long[]> acumulado) {
+        return acumulado.entrySet().stream()
+                .sorted((a, b) -> a.getValue()[0] != b.getValue()[0]
+                        ? Long.compare(b.getValue()[0], a.getValue()[0])
+                        : Long.compare(a.getKey(), b.getKey()))
+                .limit(LARGO_TOP)
+                .map(e -> new ProductStatDto(e.getKey(), nombres.get(e.getKey()), e.getValue()[0],
+                        BigDecimal.valueOf(e.getValue()[1], 2)))
+                .toList();
+    }
+
+    private SpaceSaving resumen(LocalDate dia) {
+        return porDia.computeIfAbsent(dia, d -> new SpaceSaving(capacidad));
+    }
+
+    private static long aCentavos(BigDecimal monto) {
+        return monto == null ? 0 : monto.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
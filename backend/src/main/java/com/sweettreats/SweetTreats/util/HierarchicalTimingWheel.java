@@ -0,0 +1,128 @@
+package com.sweettreats.SweetTreats.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timing wheel jerárquico (Varghese & Lauck) para vencimientos por id.
+ * Cada nivel tiene 2^bits ranuras y su tick es 2^bits veces el del nivel inferior;
+ * al avanzar, las ranuras de niveles altos se redistribuyen hacia abajo. Programar,
+ * cancelar y avanzar un tick cuestan O(1) amortizado sin importar cuántos ids haya.
+ * No es thread-safe: quien lo use debe sincronizar el acceso.
+ */
+public class HierarchicalTimingWheel {
+
+    private final long tickMillis;
+    private final int bits;
+    private final int levels;
+    private final int mask;
+    private final List<List<Long>>[] wheels;
+
+    // id -> tick en el que vence; si falta, el id fue cancelado o ya venció
+    private final Map<Long, Long> vencimientos = new HashMap<>();
+    private final List<Long> atrasados = new ArrayList<>();
+    private long actual;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int bits, int levels, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.bits = bits;
+        this.levels = levels;
+        this.mask = (1 << bits) - 1;
+        this.actual = nowMillis / tickMillis;
+        this.wheels = new List[levels];
+        for (int l = 0; l < levels; l++) {
+            List<List<Long>> ranuras = new ArrayList<>(1 << bits);
+            for (int i = 0; i <= mask; i++) {
+                ranuras.add(new ArrayList<>());
+            }
+            wheels[l] = ranuras;
+        }
+    }
+
+    public void schedule(long id, long deadlineMillis) {
+        long tick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        Long previo = vencimientos.put(id, tick);
+        if (previo != null && previo == tick) {
+            return;
+        }
+        ubicar(id, tick);
+    }
+
+    public void cancel(long id) {
+        // Las entradas que quedan en las ranuras se descartan al procesarlas
+        vencimientos.remove(id);
+    }
+
+    // Avanza hasta nowMillis y devuelve los ids vencidos en el camino
+    public List<Long> advance(long nowMillis) {
+        List<Long> vencidos = new ArrayList<>();
+        long hasta = nowMillis / tickMillis;
+        while (actual < hasta) {
+            actual++;
+            for (int l = levels - 1; l >= 1; l--) {
+                if ((actual & ((1L << (bits * l)) - 1)) == 0) {
+                    cascada(l, (int) ((actual >>> (bits * l)) & mask));
+                }
+            }
+            List<Long> ranura = wheels[0].get((int) (actual & mask));
+            for (Long id : ranura) {
+                Long tick = vencimientos.get(id);
+                if (tick != null && tick <= actual) {
+                    vencimientos.remove(id);
+                    vencidos.add(id);
+                }
+            }
+            ranura.clear();
+        }
+
+        // Un atrasado pudo reprogramarse a futuro desde que se anotó: ya tiene su propia ranura
+        for (Long id : atrasados) {
+            Long tick = vencimientos.get(id);
+            if (tick != null && tick <= actual) {
+                vencimientos.remove(id);
+                vencidos.add(id);
+            }
+        }
+        atrasados.clear();
+        return vencidos;
+    }
+
+    public int size() {
+        return vencimientos.size();
+    }
+
+    private void cascada(int level, int indice) {
+        List<Long> ranura = wheels[level].get(indice);
+        if (ranura.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(ranura);
+        ranura.clear();
+        for (Long id : ids) {
+            Long tick = vencimientos.get(id);
+            if (tick != null) {
+                ubicar(id, tick);
+            }
+        }
+    }
+
+    private void ubicar(long id, long tick) {
+        if (tick <= actual) {
+            atrasados.add(id);
+            return;
+        }
+        // Nivel más bajo en el que el tick coincide con el actual en todos los dígitos superiores
+        for (int l = 0; l < levels; l++) {
+            int superiores = bits * (l + 1);
+            if (superiores >= 63 || (tick >>> superiores) == (actual >>> superiores)) {
+                wheels[l].get((int) ((tick >>> (bits * l)) & mask)).add(id);
+                return;
+            }
+        }
+        // Más allá del horizonte: queda en el último nivel y se vuelve a ubicar en cada vuelta
+        wheels[levels - 1].get((int) ((tick >>> (bits * (levels - 1))) & mask)).add(id);
+    }
+}
@@ -0,0 +1,127 @@
+package com.sweettreats.SweetTreats.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog (Flajolet et al.) para contar ids distintos con 2^12 registros de un byte.
+ * Error estándar 1,04 / sqrt(4096) ≈ 1,6%: el 95% de las estimaciones cae a menos de
+ * ±3,3% del valor real. Con pocos ids se usa conteo lineal, que es prácticamente exacto.
+ * Dos sketches se unen tomando el máximo de cada registro, así la unión de los días de
+ * un período cuenta cada id una sola vez. No es thread-safe.
+ *
+ * Serializado: si hay pocos registros usados se guardan como pares (índice, valor),
+ * si no los 4096 bytes; un día con 30 compradores ocupa unos 90 bytes.
+ */
+public class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    private static final int REGISTROS = 1 << PRECISION;
+    /** Error relativo estándar de estimar(); la unión de varios días tiene el mismo. */
+    public static final double ERROR_ESTANDAR = 1.04 / Math.sqrt(REGISTROS);
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTROS);
+
+    private static final byte DENSO = 0;
+    private static final byte DISPERSO = 1;
+
+    private final byte[] registros = new byte[REGISTROS];
+
+    public void agregar(long id) {
+        long h = mezclar(id);
+        int indice = (int) (h >>> (64 - PRECISION));
+        int rango = Math.min(Long.numberOfLeadingZeros(h << PRECISION), 64 - PRECISION) + 1;
+        if (rango > registros[indice]) {
+            registros[indice] = (byte) rango;
+        }
+    }
+
+    public void unir(HyperLogLog otro) {
+        for (int i = 0; i < REGISTROS; i++) {
+            if (otro.registros[i] > registros[i]) {
+                registros[i] = otro.registros[i];
+            }
+        }
+    }
+
+    public long estimar() {
+        double suma = 0;
+        int ceros = 0;
+        for (byte r : registros) {
+            suma += 1.0 / (1L << r);
+            if (r == 0) {
+                ceros++;
+            }
+        }
+        double estimado = ALPHA * REGISTROS * REGISTROS / suma;
+        if (estimado <= 2.5 * REGISTROS && ceros > 0) {
+            estimado = REGISTROS * Math.log((double) REGISTROS / ceros);
+        }
+        return Math.round(estimado);
+    }
+
+    public boolean vacio() {
+        for (byte r : registros) {
+            if (r != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] aBytes() {
+        int usados = 0;
+        for (byte r : registros) {
+            if (r != 0) {
+                usados++;
+            }
+        }
+        if (usados * 3 >= REGISTROS) {
+            byte[] denso = new byte[REGISTROS + 1];
+            denso[0] = DENSO;
+            System.arraycopy(registros, 0, denso, 1, REGISTROS);
+            return denso;
+        }
+        ByteBuffer disperso = ByteBuffer.allocate(1 + usados * 3);
+        disperso.put(DISPERSO);
+        for (int i = 0; i < REGISTROS; i++) {
+            if (registros[i] != 0) {
+                disperso.putShort((short) i);
+                disperso.put(registros[i]);
+            }
+        }
+        return disperso.array();
+    }
+
+    public static HyperLogLog deBytes(byte[] datos) {
+        HyperLogLog hll = new HyperLogLog();
+        if (datos == null || datos.length == 0) {
+            return hll;
+        }
+        if (datos[0] == DENSO) {
+            System.arraycopy(datos, 1, hll.registros, 0, REGISTROS);
+            return hll;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(datos, 1, datos.length - 1);
+        while (buffer.remaining() >= 3) {
+            hll.registros[buffer.getShort() & 0xFFFF] = buffer.get();
+        }
+        return hll;
+    }
+
+    // Finalizador de SplitMix64: ids consecutivos quedan bien repartidos en los registros
+    private static long mezclar(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof HyperLogLog otro && Arrays.equals(registros, otro.registros);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(registros);
+    }
+}
@@ -0,0 +1,102 @@
+package com.sweettreats.SweetTreats.util;
+
+import java.util.Arrays;
+
+/**
+ * Histograma log-lineal de valores enteros no negativos, al estilo HDR: los valores
+ * menores a 128 tienen un bucket propio y de ahí en más cada potencia de 2 se parte en
+ * 64 buckets, así el error relativo de cualquier cuantil queda por debajo de 1/64.
+ * Dos histogramas se combinan sumando buckets, se puede restar lo que se sumó (pedidos
+ * cancelados) y el costo de un cuantil depende solo de la cantidad de buckets, no de
+ * cuántos valores se cargaron. El array crece hasta el bucket más alto usado.
+ * No es thread-safe.
+ */
+public class LogHistogram {
+
+    private static final int LINEALES = 128;
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private long[] cuentas = new long[LINEALES];
+    private long total;
+
+    public void agregar(long valor, long veces) {
+        int i = indice(valor);
+        if (i >= cuentas.length) {
+            cuentas = Arrays.copyOf(cuentas, Math.max(i + 1, cuentas.length + SUB_BUCKETS));
+        }
+        cuentas[i] += veces;
+        total += veces;
+    }
+
+    public void restar(long valor, long veces) {
+        int i = indice(valor);
+        if (i >= cuentas.length) {
+            return;
+        }
+        long quitados = Math.min(veces, cuentas[i]);
+        cuentas[i] -= quitados;
+        total -= quitados;
+    }
+
+    public void sumar(LogHistogram otro) {
+        if (otro.cuentas.length > cuentas.length) {
+            cuentas = Arrays.copyOf(cuentas, otro.cuentas.length);
+        }
+        for (int i = 0; i < otro.cuentas.length; i++) {
+            cuentas[i] += otro.cuentas[i];
+        }
+        total += otro.total;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    /** Valor representativo del cuantil q (0 < q <= 1); 0 si está vacío. */
+    public long cuantil(double q) {
+        if (total == 0) {
+            return 0;
+        }
+        long rango = Math.max(1, (long) Math.ceil(q * total));
+        long acumulado = 0;
+        for (int i = 0; i < cuentas.length; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= rango) {
+                return representativo(i);
+            }
+        }
+        return maximo();
+    }
+
+    public long maximo() {
+        for (int i = cuentas.length - 1; i >= 0; i--) {
+            if (cuentas[i] > 0) {
+                return representativo(i);
+            }
+        }
+        return 0;
+    }
+
+    static int indice(long valor) {
+        if (valor < LINEALES) {
+            return (int) Math.max(valor, 0);
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int corrimiento = exponente - SUB_BITS;
+        int mantisa = (int) (valor >>> corrimiento) - SUB_BUCKETS;
+        return LINEALES + (exponente - 7) * SUB_BUCKETS + mantisa;
+    }
+
+    // Punto medio del rango que cubre el bucket
+    static long representativo(int indice) {
+        if (indice < LINEALES) {
+            return indice;
+        }
+        int exponente = (indice - LINEALES) / SUB_BUCKETS + 7;
+        int mantisa = (indice - LINEALES) % SUB_BUCKETS + SUB_BUCKETS;
+        int corrimiento = exponente - SUB_BITS;
+        long desde = (long) mantisa << corrimiento;
+        return desde + ((1L << corrimiento) >> 1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.sweettreats.SweetTreats.util;
+
+/**
+ * Largest-Triangle-Three-Buckets: reduce una serie a `puntos` puntos conservando su forma.
+ * El primero y el último se quedan; el resto se parte en puntos-2 buckets y de cada uno se
+ * elige el punto que forma el triángulo más grande con el elegido antes y el promedio del
+ * bucket siguiente, así los picos y valles sobreviven aunque se descarte casi todo.
+ * Una pasada sobre arrays primitivos; x tiene que ser creciente (los huecos cuentan).
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    /** Índices elegidos, en orden; todos si la serie ya tiene `puntos` o menos, o si puntos < 3. */
+    public static int[] seleccionar(double[] x, double[] y, int puntos) {
+        int n = y.length;
+        if (puntos >= n || puntos < 3) {
+            int[] todos = new int[n];
+            for (int i = 0; i < n; i++) {
+                todos[i] = i;
+            }
+            return todos;
+        }
+
+        int[] elegidos = new int[puntos];
+        double ancho = (double) (n - 2) / (puntos - 2);
+        int a = 0;
+        for (int b = 0; b < puntos - 2; b++) {
+            // Promedio del bucket siguiente (el último es solo el punto final)
+            int desdeSig = (int) ((b + 1) * ancho) + 1;
+            int hastaSig = Math.min((int) ((b + 2) * ancho) + 1, n);
+            double promX = 0;
+            double promY = 0;
+            for (int j = desdeSig; j < hastaSig; j++) {
+                promX += x[j];
+                promY += y[j];
+            }
+            int cantidad = hastaSig - desdeSig;
+            promX /= cantidad;
+            promY /= cantidad;
+
+            int desde = (int) (b * ancho) + 1;
+            int hasta = (int) ((b + 1) * ancho) + 1;
+            double maxArea = -1;
+            int elegido = desde;
+            for (int j = desde; j < hasta; j++) {
+                // Doble del área del triángulo (a, j, promedio): alcanza para comparar
+                double area = Math.abs((x[a] - promX) * (y[j] - y[a]) - (x[a] - x[j]) * (promY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    elegido = j;
+                }
+            }
+            elegidos[b + 1] = elegido;
+            a = elegido;
+        }
+        elegidos[puntos - 1] = n - 1;
+        return elegidos;
+    }
+}
@@ -0,0 +1,119 @@
+package com.sweettreats.SweetTreats.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Resumen Space-Saving (Metwally et al.) de los ids más frecuentes, con pesos.
+ * Guarda como mucho `capacidad` contadores; cuando llega un id nuevo y está lleno,
+ * reemplaza al de menor cuenta y hereda esa cuenta como error. Todo id con peso real
+ * mayor que la cuenta mínima está garantizado en el resumen, y para cada contador
+ * cuenta - error <= real <= cuenta. Mientras haya menos ids que capacidad es exacto.
+ *
+ * Las restas (pedidos cancelados) solo descuentan de ids presentes. No es thread-safe.
+ */
+public class SpaceSaving {
+
+    public static final class Contador {
+        private final long id;
+        private long cuenta;
+        private long error;
+        private long centavos;
+
+        private Contador(long id) {
+            this.id = id;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public long cuenta() {
+            return cuenta;
+        }
+
+        public long error() {
+            return error;
+        }
+
+        public long centavos() {
+            return centavos;
+        }
+    }
+
+    private static final Comparator<Contador> POR_CUENTA =
+            Comparator.comparingLong(Contador::cuenta).thenComparingLong(Contador::id);
+
+    private final int capacidad;
+    private final Map<Long, Contador> porId = new HashMap<>();
+    private final TreeSet<Contador> ordenados = new TreeSet<>(POR_CUENTA);
+
+    public SpaceSaving(int capacidad) {
+        if (capacidad < 1) {
+            throw new IllegalArgumentException("capacidad debe ser positiva");
+        }
+        this.capacidad = capacidad;
+    }
+
+    /** Devuelve el contador desalojado para hacerle lugar al id, o null si no hizo falta. */
+    public Contador agregar(long id, long peso, long centavos) {
+        Contador c = porId.get(id);
+        Contador desalojado = null;
+        if (c == null) {
+            if (porId.size() < capacidad) {
+                c = new Contador(id);
+            } else {
+                desalojado = ordenados.pollFirst();
+                porId.remove(desalojado.id);
+                c = new Contador(id);
+                c.cuenta = desalojado.cuenta;
+                c.error = desalojado.cuenta;
+            }
+            porId.put(id, c);
+        } else {
+            ordenados.remove(c);
+        }
+        c.cuenta += peso;
+        c.centavos += centavos;
+        ordenados.add(c);
+        return desalojado;
+    }
+
+    public void restar(long id, long peso, long centavos) {
+        Contador c = porId.get(id);
+        if (c == null) {
+            return;
+        }
+        ordenados.remove(c);
+        c.cuenta -= peso;
+        c.centavos -= centavos;
+        if (c.cuenta <= 0) {
+            porId.remove(id);
+        } else {
+            ordenados.add(c);
+        }
+    }
+
+    /** Contador del id, o null si no está en el resumen. */
+    public Contador contador(long id) {
+        return porId.get(id);
+    }
+
+    /** Cota superior del peso de cualquier id que no está en el resumen. */
+    public long minimo() {
+        return porId.size() < capacidad || ordenados.isEmpty() ? 0 : ordenados.first().cuenta;
+    }
+
+    public int tamanio() {
+        return porId.size();
+    }
+
+    /** Contadores de mayor a menor cuenta. */
+    public List<Contador> contadores() {
+        return new ArrayList<>(ordenados.descendingSet());
+    }
+}
@@ -0,0 +1,74 @@
+package com.sweettreats.SweetTreats.util;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.Configurable;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ids de 53 bits ordenados por tiempo: 41 bits de milisegundos desde 2024-01-01,
+ * 8 bits de secuencia y 4 bits de nodo (propiedad de Hibernate app.id.node, 0-15).
+ * Caben en un Number de JavaScript, así que el frontend los maneja sin perder precisión,
+ * y no requieren ningún round-trip a la base. Si se agota la secuencia dentro del mismo
+ * milisegundo se toma prestado del siguiente, por lo que los ids nunca se repiten ni
+ * retroceden aunque el reloj del sistema lo haga.
+ * Hibernate lo instancia por el contenedor de beans de Spring, así que solo expone un
+ * constructor sin argumentos y lee el nodo en configure().
+ */
+public class TimeOrderedIdGenerator implements BeforeExecutionGenerator, Configurable {
+
+    static final long EPOCH = 1704067200000L;
+    static final int SEQUENCE_BITS = 8;
+    static final int NODE_BITS = 4;
+
+    // (milisegundos << SEQUENCE_BITS) | secuencia del último id emitido en este proceso
+    private static final AtomicLong ultimo = new AtomicLong();
+
+    private long node;
+
+    public TimeOrderedIdGenerator() {
+    }
+
+    TimeOrderedIdGenerator(int node) {
+        this.node = validar(node);
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        Object valor = serviceRegistry.requireService(ConfigurationService.class)
+                .getSettings()
+                .get("app.id.node");
+        this.node = validar(valor == null ? 0 : Integer.parseInt(valor.toString()));
+    }
+
+    public long nextId() {
+        long base = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long valor = ultimo.accumulateAndGet(base, (previo, candidato) -> Math.max(previo + 1, candidato));
+        return (valor << NODE_BITS) | node;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    private static int validar(int node) {
+        if (node < 0 || node >= (1 << NODE_BITS)) {
+            throw new IllegalArgumentException("app.id.node debe estar entre 0 y " + ((1 << NODE_BITS) - 1));
+        }
+        return node;
+    }
+}
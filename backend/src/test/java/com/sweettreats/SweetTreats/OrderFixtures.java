@@ -0,0 +1,58 @@
+package com.sweettreats.SweetTreats;
+
+import com.sweettreats.SweetTreats.model.*;
+import com.sweettreats.SweetTreats.repository.ProductRepository;
+import com.sweettreats.SweetTreats.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Datos comunes de los tests de pedidos contra el contexto completo
+final class OrderFixtures {
+
+    private OrderFixtures() {
+    }
+
+    // Email al azar: los tests comparten la base y el email es único
+    static UserModel usuario(UserRepository userRepository, String nombre) {
+        return userRepository.save(UserModel.builder()
+                .name(nombre)
+                .email(UUID.randomUUID() + "@test.com")
+                .password("x")
+                .isEnabled(true)
+                .build());
+    }
+
+    // Productos "A", "B", ... con precio 100, 200, ... y stock de sobra
+    static List<ProductModel> productos(ProductRepository productRepository, int cantidad) {
+        List<ProductModel> productos = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            String nombre = String.valueOf((char) ('A' + i));
+            productos.add(new ProductModel(nombre, nombre.toLowerCase(), 100.0 * (i + 1), null, 1000));
+        }
+        return productRepository.saveAll(productos);
+    }
+
+    // Pedido PENDIENTE sin guardar con una unidad de cada producto
+    static OrderModel pedido(UserModel user, List<ProductModel> productos) {
+        OrderModel order = new OrderModel();
+        order.setUsermodel(user);
+        order.setEstado(OrderEnum.PENDIENTE);
+        BigDecimal total = BigDecimal.ZERO;
+        List<OrderDetailModel> detalles = new ArrayList<>();
+        for (ProductModel p : productos) {
+            OrderDetailModel det = new OrderDetailModel();
+            det.setOrderModel(order);
+            det.setProductModel(p);
+            det.setCantidad(1);
+            det.setPrecioUnitario(BigDecimal.valueOf(p.getPrecio()));
+            detalles.add(det);
+            total = total.add(det.getPrecioUnitario());
+        }
+        order.setTotal(total);
+        order.setDetalles(detalles);
+        return order;
+    }
+}
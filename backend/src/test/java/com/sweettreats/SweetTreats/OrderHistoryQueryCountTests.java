@@ -0,0 +1,73 @@
+package com.sweettreats.SweetTreats;
+
+import com.sweettreats.SweetTreats.dto.CursorPage;
+import com.sweettreats.SweetTreats.dto.OrderResponse;
+import com.sweettreats.SweetTreats.model.*;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import com.sweettreats.SweetTreats.repository.ProductRepository;
+import com.sweettreats.SweetTreats.repository.UserRepository;
+import com.sweettreats.SweetTreats.service.OrderService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class OrderHistoryQueryCountTests {
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void cadaPaginaDelHistorialUsaUnaCantidadFijaDeConsultas() {
+        UserModel user = OrderFixtures.usuario(userRepository, "historial");
+        List<ProductModel> productos = OrderFixtures.productos(productRepository, 3);
+
+        List<OrderModel> pedidos = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            pedidos.add(OrderFixtures.pedido(user, productos));
+        }
+        orderRepository.saveAll(pedidos);
+        entityManager.flush();
+        entityManager.clear();
+
+        UserModel cargado = userRepository.findById(user.getId()).orElseThrow();
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        String cursor = null;
+        int total = 0;
+        do {
+            stats.clear();
+            CursorPage<OrderResponse> pagina = orderService.obtenerPedidosDeUsuario(cargado, cursor, 10);
+            pagina.items().forEach(o -> assertEquals(3, o.detalles().size()));
+            total += pagina.items().size();
+            cursor = pagina.nextCursor();
+
+            // Una consulta para los pedidos y otra para detalles + productos, sin importar el tamaño
+            assertTrue(stats.getPrepareStatementCount() <= 2,
+                    "Sentencias por página: " + stats.getPrepareStatementCount());
+        } while (cursor != null);
+
+        assertEquals(25, total);
+    }
+}
@@ -0,0 +1,95 @@
+package com.sweettreats.SweetTreats;
+
+import com.sweettreats.SweetTreats.model.*;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import com.sweettreats.SweetTreats.repository.ProductRepository;
+import com.sweettreats.SweetTreats.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Mide throughput de INSERT de pedidos de 1, 5 y 20 líneas.
+// Correr con: mvn test -Dtest=OrderInsertBenchmarkTests -Dbenchmark=true
+// (para comparar, ejecutarlo también sobre el commit anterior, con ids IDENTITY)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderInsertBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderInsertBenchmarkTests.class);
+
+    private static final int PEDIDOS = 2_000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void insertarPedidos() {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (int lineas : new int[]{1, 5, 20}) {
+            stats.clear();
+            long inicio = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                UserModel user = userRepository.findUserModelByEmail("rafe@user.com").orElseThrow();
+                ProductModel producto = productRepository.findAll().get(0);
+                orderRepository.saveAll(pedidos(user, producto, lineas));
+                entityManager.flush();
+                status.setRollbackOnly();
+            });
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            long sentencias = stats.getPrepareStatementCount();
+            log.info("{} líneas: {} pedidos/s, {} sentencias preparadas",
+                    lineas, Math.round(PEDIDOS / segundos), sentencias);
+
+            // Con ids generados en memoria los INSERT se agrupan en batches de JDBC
+            assertTrue(sentencias < PEDIDOS, "Sentencias preparadas: " + sentencias);
+        }
+    }
+
+    private List<OrderModel> pedidos(UserModel user, ProductModel producto, int lineas) {
+        List<OrderModel> pedidos = new ArrayList<>(PEDIDOS);
+        for (int i = 0; i < PEDIDOS; i++) {
+            OrderModel order = new OrderModel();
+            order.setUsermodel(user);
+            order.setEstado(OrderEnum.PENDIENTE);
+            order.setDireccionEnvio("Benchmark 123");
+            order.setMetodoPago("card");
+            List<OrderDetailModel> detalles = new ArrayList<>(lineas);
+            for (int l = 0; l < lineas; l++) {
+                OrderDetailModel det = new OrderDetailModel();
+                det.setOrderModel(order);
+                det.setProductModel(producto);
+                det.setCantidad(1);
+                det.setPrecioUnitario(BigDecimal.valueOf(producto.getPrecio()));
+                detalles.add(det);
+            }
+            order.setDetalles(detalles);
+            order.setTotal(BigDecimal.valueOf(producto.getPrecio() * lineas));
+            pedidos.add(order);
+        }
+        return pedidos;
+    }
+}
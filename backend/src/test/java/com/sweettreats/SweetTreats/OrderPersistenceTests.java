@@ -0,0 +1,49 @@
+package com.sweettreats.SweetTreats;
+
+import com.sweettreats.SweetTreats.model.*;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import com.sweettreats.SweetTreats.repository.ProductRepository;
+import com.sweettreats.SweetTreats.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Persiste un pedido con sus detalles a través del contexto completo, de modo que
+// Hibernate construya TimeOrderedIdGenerator igual que en producción
+@SpringBootTest
+@Transactional
+class OrderPersistenceTests {
+
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void pedidoConDetallesRecibeIdsOrdenadosPorTiempo() {
+        UserModel user = OrderFixtures.usuario(userRepository, "persistencia");
+        List<ProductModel> productos = OrderFixtures.productos(productRepository, 2);
+
+        OrderModel order = orderRepository.save(OrderFixtures.pedido(user, productos));
+        entityManager.flush();
+        entityManager.clear();
+
+        OrderModel cargado = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(2, cargado.getDetalles().size());
+        for (OrderDetailModel det : cargado.getDetalles()) {
+            assertNotNull(det.getId());
+            assertTrue(det.getId() > cargado.getId());
+            assertTrue(det.getId() < (1L << 53));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.sweettreats.SweetTreats.config;
+
+import com.sweettreats.SweetTreats.exception.GlobalExceptionHandler;
+import com.sweettreats.SweetTreats.service.impl.Bulkheads;
+import com.sweettreats.SweetTreats.service.impl.Bulkheads.Compartimento;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BulkheadDataSourceTest {
+
+    private final DataSource pool = mock(DataSource.class);
+    private final Bulkheads bulkheads = bulkheads();
+    private final BulkheadDataSource dataSource = new BulkheadDataSource(pool,
+            new StaticListableBeanFactory(Map.of("bulkheads", bulkheads)).getBeanProvider(Bulkheads.class));
+    private final TransactionTemplate transaccion =
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+    private static Bulkheads bulkheads() {
+        MockEnvironment env = new MockEnvironment();
+        env.setConversionService(new ApplicationConversionService());
+        env.setProperty("app.bulkhead.reports.max-concurrent", "4");
+        env.setProperty("app.bulkhead.reports.max-wait", "0s");
+        env.setProperty("app.bulkhead.reports.connections", "1");
+        env.setProperty("app.bulkhead.reports.retry-after", "7");
+        return new Bulkheads(env);
+    }
+
+    @Test
+    void sinConexionesDelCompartimentoLaTransaccionTerminaEn503ConRetryAfter() throws SQLException {
+        when(pool.getConnection()).thenAnswer(i -> mock(Connection.class));
+
+        CannotCreateTransactionException e = bulkheads.en(Compartimento.REPORTES, () -> {
+            try (Connection ocupada = dataSource.getConnection()) {
+                return assertThrows(CannotCreateTransactionException.class,
+                        () -> transaccion.executeWithoutResult(status -> fail("No debería empezar")));
+            }
+        });
+
+        ResponseEntity<Map<String, String>> respuesta = new GlobalExceptionHandler().handleSinConexion(e);
+        assertEquals(503, respuesta.getStatusCode().value());
+        assertEquals("7", respuesta.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void laTransaccionDevuelveLaConexionAlCupoAlTerminar() throws SQLException {
+        when(pool.getConnection()).thenAnswer(i -> mock(Connection.class));
+
+        bulkheads.en(Compartimento.REPORTES, () -> {
+            transaccion.executeWithoutResult(status -> {
+            });
+            transaccion.executeWithoutResult(status -> {
+            });
+            return null;
+        });
+        verify(pool, times(2)).getConnection();
+    }
+
+    @Test
+    void otrasFallasDeConexionNoSeConviertenEn503() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        CannotCreateTransactionException e = assertThrows(CannotCreateTransactionException.class,
+                () -> transaccion.executeWithoutResult(status -> fail("No debería empezar")));
+        assertSame(e, assertThrows(CannotCreateTransactionException.class,
+                () -> new GlobalExceptionHandler().handleSinConexion(e)));
+    }
+}
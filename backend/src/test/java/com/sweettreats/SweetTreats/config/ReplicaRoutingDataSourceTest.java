@@ -0,0 +1,97 @@
+package com.sweettreats.SweetTreats.config;
+
+import com.sweettreats.SweetTreats.service.impl.ReadYourWrites;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primaria = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(Duration.ofSeconds(10));
+    private final ReplicaRoutingDataSource routing =
+            new ReplicaRoutingDataSource(primaria, replica, readYourWrites, Duration.ofSeconds(5));
+
+    @AfterEach
+    void limpiarContexto() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void antesDeMedirLeeDeLaPrimaria() {
+        assertEquals(ReplicaRoutingDataSource.Destino.PRIMARIA, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void instanciaSinReplicacionSeTomaComoAlDia() throws SQLException {
+        estadoReplica(null);
+        routing.medirRetraso();
+        assertEquals(ReplicaRoutingDataSource.Destino.REPLICA, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void retrasoSobreElMaximoVuelveALaPrimaria() throws SQLException {
+        estadoReplica(3L);
+        routing.medirRetraso();
+        assertEquals(ReplicaRoutingDataSource.Destino.REPLICA, routing.determineCurrentLookupKey());
+
+        estadoReplica(30L);
+        routing.medirRetraso();
+        assertEquals(ReplicaRoutingDataSource.Destino.PRIMARIA, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void replicaCaidaVuelveALaPrimaria() throws SQLException {
+        estadoReplica(null);
+        routing.medirRetraso();
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        routing.medirRetraso();
+        assertEquals(ReplicaRoutingDataSource.Destino.PRIMARIA, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void elUsuarioQueAcabaDeComprarLeeDeLaPrimaria() throws SQLException {
+        estadoReplica(null);
+        routing.medirRetraso();
+        readYourWrites.fijar("ana@example.com");
+
+        autenticar("ana@example.com");
+        assertEquals(ReplicaRoutingDataSource.Destino.PRIMARIA, routing.determineCurrentLookupKey());
+
+        autenticar("otro@example.com");
+        assertEquals(ReplicaRoutingDataSource.Destino.REPLICA, routing.determineCurrentLookupKey());
+    }
+
+    private static void autenticar(String usuario) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(usuario, null, List.of()));
+    }
+
+    // segundos null: SHOW REPLICA STATUS sin filas, como en una instancia suelta
+    private void estadoReplica(Long segundos) throws SQLException {
+        Connection c = mock(Connection.class);
+        Statement st = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(c);
+        when(c.createStatement()).thenReturn(st);
+        when(st.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(segundos != null);
+        if (segundos != null) {
+            when(rs.getLong("Seconds_Behind_Source")).thenReturn(segundos);
+        }
+    }
+}
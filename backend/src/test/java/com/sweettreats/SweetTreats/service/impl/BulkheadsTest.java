@@ -0,0 +1,86 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.exception.BulkheadLlenoException;
+import com.sweettreats.SweetTreats.service.impl.Bulkheads.Compartimento;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadsTest {
+
+    private static Bulkheads bulkheads(int concurrentes, int cola, String espera, int conexiones) {
+        MockEnvironment env = new MockEnvironment();
+        env.setConversionService(new ApplicationConversionService());
+        env.setProperty("app.bulkhead.reports.max-concurrent", Integer.toString(concurrentes));
+        env.setProperty("app.bulkhead.reports.queue", Integer.toString(cola));
+        env.setProperty("app.bulkhead.reports.max-wait", espera);
+        env.setProperty("app.bulkhead.reports.connections", Integer.toString(conexiones));
+        env.setProperty("app.bulkhead.reports.retry-after", "7");
+        return new Bulkheads(env);
+    }
+
+    @Test
+    void conLaColaLlenaRechazaSinEsperarConRetryAfter() {
+        Bulkheads b = bulkheads(1, 0, "10s", 0);
+        Bulkheads.Permiso p = b.entrar(Compartimento.REPORTES);
+
+        long inicio = System.nanoTime();
+        BulkheadLlenoException e = assertThrows(BulkheadLlenoException.class, () -> b.entrar(Compartimento.REPORTES));
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(503, e.getStatusCode().value());
+        assertEquals("7", e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        p.cerrar();
+        p.cerrar();
+        b.entrar(Compartimento.REPORTES).cerrar();
+        var stats = b.estadisticas().stream().filter(s -> s.compartimento().equals("reports")).findFirst().orElseThrow();
+        assertEquals(0, stats.enCurso());
+        assertEquals(1, stats.rechazos());
+    }
+
+    @Test
+    void enColaEsperaQueSeLibereUnCupo() throws Exception {
+        Bulkheads b = bulkheads(1, 1, "5s", 0);
+        Bulkheads.Permiso p = b.entrar(Compartimento.REPORTES);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch esperando = new CountDownLatch(1);
+            Future<?> segundo = pool.submit(() -> {
+                esperando.countDown();
+                b.entrar(Compartimento.REPORTES).cerrar();
+            });
+            esperando.await();
+            Thread.sleep(50);
+            p.cerrar();
+            segundo.get(2, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void elCupoDeConexionesSeRespetaYSoloAplicaDentroDelCompartimento() {
+        Bulkheads b = bulkheads(4, 0, "0s", 1);
+        assertNull(b.actual());
+        assertTrue(b.reservarConexion(Compartimento.REPORTES));
+        assertThrows(BulkheadLlenoException.class, () -> b.reservarConexion(Compartimento.REPORTES));
+        b.liberarConexion(Compartimento.REPORTES);
+        assertTrue(b.reservarConexion(Compartimento.REPORTES));
+
+        // El checkout no tiene límite propio de conexiones por defecto
+        assertFalse(b.reservarConexion(Compartimento.CHECKOUT));
+
+        Compartimento dentro = b.en(Compartimento.REPORTES, b::actual);
+        assertEquals(Compartimento.REPORTES, dentro);
+        assertNull(b.actual());
+    }
+}
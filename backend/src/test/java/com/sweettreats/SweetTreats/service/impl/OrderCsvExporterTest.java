@@ -0,0 +1,172 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Export contra un DataSource sintético: el ResultSet genera las filas a medida que se leen
+class OrderCsvExporterTest {
+
+    private static final int UN_MILLON = 1_000_000;
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void exportaUnMillonDeFilasConHeapPlano() throws IOException {
+        Runtime runtime = Runtime.getRuntime();
+        long base = usadoTrasGc(runtime);
+        long[] pico = {0};
+
+        DataSource ds = dataSource(UN_MILLON, fila -> {
+            // Cada 100.000 filas se mide lo que sigue vivo: si el export acumulara filas, crecería
+            if (fila % 100_000 == 0) {
+                pico[0] = Math.max(pico[0], usadoTrasGc(runtime) - base);
+            }
+        });
+        ContadorDeLineas salida = new ContadorDeLineas();
+        new OrderCsvExporter(ds, Integer.MIN_VALUE)
+                .exportar(salida, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), null, false);
+
+        assertEquals(UN_MILLON + 1, salida.lineas, "encabezado más una línea por fila");
+        assertTrue(salida.bytes > 50 * MB);
+        assertTrue(pico[0] < 32 * MB, "heap retenido durante el export: " + pico[0] / MB + " MB");
+    }
+
+    @Test
+    void gzipSeDescomprimeAlMismoCsv() throws IOException {
+        ByteArrayOutputStream plano = new ByteArrayOutputStream();
+        ByteArrayOutputStream comprimido = new ByteArrayOutputStream();
+        new OrderCsvExporter(dataSource(1_000, fila -> { }), 500).exportar(plano, null, null, null, false);
+        new OrderCsvExporter(dataSource(1_000, fila -> { }), 500).exportar(comprimido, null, null, null, true);
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(comprimido.toByteArray()))) {
+            assertArrayEquals(plano.toByteArray(), in.readAllBytes());
+        }
+        assertTrue(comprimido.size() < plano.size());
+        assertTrue(plano.toString(StandardCharsets.UTF_8).startsWith(OrderCsvExporter.ENCABEZADO + "\n1,2025-03-01T10:15,"));
+    }
+
+    @Test
+    void escapaComillasSeparadoresYFormulas() throws IOException {
+        StringWriter w = new StringWriter();
+        OrderCsvExporter.texto(w, "Calle 1, \"B\"");
+        w.write('|');
+        OrderCsvExporter.texto(w, "=HYPERLINK(\"x\")");
+        w.write('|');
+        OrderCsvExporter.texto(w, "Torta");
+        assertEquals("\"Calle 1, \"\"B\"\"\"|\"'=HYPERLINK(\"\"x\"\")\"|Torta", w.toString());
+    }
+
+    private static long usadoTrasGc(Runtime runtime) {
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private interface AlLeerFila {
+        void fila(long numero);
+    }
+
+    // Proxies mínimos de JDBC: lo que JdbcTemplate no necesita devuelve el valor por defecto
+    private static DataSource dataSource(long filas, AlLeerFila alLeer) {
+        ResultSet rs = resultSet(filas, alLeer);
+        PreparedStatement ps = proxy(PreparedStatement.class, (m, args) ->
+                m.getName().equals("executeQuery") ? rs : null);
+        Connection con = proxy(Connection.class, (m, args) ->
+                m.getName().startsWith("prepareStatement") ? ps : null);
+        return proxy(DataSource.class, (m, args) -> m.getName().equals("getConnection") ? con : null);
+    }
+
+    private static ResultSet resultSet(long filas, AlLeerFila alLeer) {
+        Timestamp fecha = Timestamp.valueOf(LocalDateTime.of(2025, 3, 1, 10, 15));
+        BigDecimal total = new BigDecimal("4250.50");
+        BigDecimal precio = new BigDecimal("850.10");
+        long[] actual = {0};
+        boolean[] nulo = {false};
+        return proxy(ResultSet.class, (m, args) -> {
+            long i = actual[0];
+            nulo[0] = false;
+            return switch (m.getName()) {
+                case "next" -> {
+                    if (actual[0] == filas) {
+                        yield false;
+                    }
+                    alLeer.fila(++actual[0]);
+                    yield true;
+                }
+                case "wasNull" -> nulo[0];
+                case "getLong" -> (int) args[0] == 1 ? i : 1 + i % 40;
+                case "getInt" -> (int) (1 + i % 5);
+                case "getTimestamp" -> fecha;
+                case "getBigDecimal" -> (int) args[0] == 5 ? total : precio;
+                case "getString" -> switch ((int) args[0]) {
+                    case 3 -> "ENTREGADO";
+                    case 4 -> "cliente" + (i % 5_000) + "@mail.com";
+                    case 6 -> "tarjeta";
+                    case 7 -> "Av. Siempre Viva 742, Depto " + (i % 20);
+                    default -> "Torta de chocolate";
+                };
+                default -> null;
+            };
+        });
+    }
+
+    private interface Respuesta {
+        Object responder(java.lang.reflect.Method m, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, Respuesta respuesta) {
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (p, m, args) -> {
+            Object r = respuesta.responder(m, args);
+            if (r != null) {
+                return r;
+            }
+            Class<?> retorno = m.getReturnType();
+            if (retorno == boolean.class) {
+                return false;
+            }
+            if (retorno == int.class) {
+                return 0;
+            }
+            if (retorno == long.class) {
+                return 0L;
+            }
+            return null;
+        });
+    }
+
+    private static final class ContadorDeLineas extends OutputStream {
+        long lineas;
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lineas++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lineas++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sweettreats.SweetTreats.dto.ReportJobDto;
+import com.sweettreats.SweetTreats.dto.ReportJobRequest;
+import com.sweettreats.SweetTreats.exception.BulkheadLlenoException;
+import com.sweettreats.SweetTreats.model.ReportJobEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// report_jobs se simula con un mapa detrás de un JdbcTemplate mockeado; cada consulta de
+// tramo devuelve una fila y espera un permiso, así el test decide cuándo avanza el job
+class ReportJobServiceTest {
+
+    // Lunes 2024-01-01 a domingo 2024-02-25: ocho semanas, dos tramos de 28 días
+    private static final ReportJobRequest OCHO_SEMANAS = new ReportJobRequest(
+            ReportJobService.VENTAS_PRODUCTO_SEMANA, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 25));
+
+    private static final class Fila {
+        long id;
+        String tipo;
+        LocalDate desde;
+        LocalDate hasta;
+        String clave;
+        ReportJobEnum estado;
+        Integer filas;
+        byte[] resultado;
+        String error;
+        LocalDateTime createdAt;
+        LocalDateTime finishedAt;
+        LocalDateTime expiresAt;
+    }
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final Map<Long, Fila> tabla = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final AtomicInteger tramos = new AtomicInteger();
+    private final Semaphore permisos = new Semaphore(0);
+    private ReportJobService service;
+
+    @BeforeEach
+    void simularTabla() throws SQLException {
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+        when(jdbcTemplate.update(any(PreparedStatementCreator.class), any(KeyHolder.class))).thenAnswer(i -> {
+            insertar(i.getArgument(0), i.getArgument(1));
+            return 1;
+        });
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(i ->
+                actualizar(i.getArgument(0), Arrays.copyOfRange(i.getArguments(), 1, i.getArguments().length)));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenAnswer(i -> {
+            String clave = i.getArgument(2);
+            LocalDateTime terminadoDesde = i.<Timestamp>getArgument(4).toLocalDateTime();
+            LocalDateTime ahora = i.<Timestamp>getArgument(5).toLocalDateTime();
+            return tabla.values().stream()
+                    .filter(f -> f.clave.equals(clave) && f.estado == ReportJobEnum.TERMINADO
+                            && f.finishedAt.isAfter(terminadoDesde) && f.expiresAt.isAfter(ahora))
+                    .map(f -> f.id)
+                    .sorted(Comparator.reverseOrder())
+                    .limit(1)
+                    .toList();
+        });
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenAnswer(i -> {
+            Fila f = tabla.get(i.<Long>getArgument(2));
+            if (f == null || !f.expiresAt.isAfter(i.<Timestamp>getArgument(3).toLocalDateTime())) {
+                return List.of();
+            }
+            return List.of(i.<RowMapper<?>>getArgument(1).mapRow(resultSet(f), 0));
+        });
+        doAnswer(i -> {
+            tramos.incrementAndGet();
+            assertTrue(permisos.tryAcquire(5, TimeUnit.SECONDS), "El test no liberó el tramo");
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong(1)).thenReturn(7L);
+            when(rs.getString(2)).thenReturn("Torta");
+            when(rs.getDate(3)).thenReturn(i.getArgument(2));
+            when(rs.getLong(4)).thenReturn(3L);
+            when(rs.getBigDecimal(5)).thenReturn(new BigDecimal("4500.00"));
+            i.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        when(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), any(Object[].class)))
+                .thenAnswer(i -> tabla.get(i.<Long>getArgument(2)).resultado);
+
+        service = service(2, 16);
+    }
+
+    @AfterEach
+    void detener() {
+        permisos.release(1000);
+        service.detener();
+    }
+
+    private ReportJobService service(int hilos, int cola) {
+        MockEnvironment env = new MockEnvironment();
+        env.setConversionService(new ApplicationConversionService());
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return new ReportJobService(jdbcTemplate, transactionManager, objectMapper, new Bulkheads(env), null,
+                hilos, cola, Duration.ofHours(24), Duration.ofMinutes(15), 1100);
+    }
+
+    @Test
+    void unPedidoIgualAUnoEnCursoDevuelveElMismoJob() {
+        ReportJobDto primero = service.enviar(OCHO_SEMANAS, "admin");
+        ReportJobDto repetido = service.enviar(OCHO_SEMANAS, "otro");
+        ReportJobDto otroRango = service.enviar(new ReportJobRequest(
+                ReportJobService.VENTAS_PRODUCTO_SEMANA, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 28)), "admin");
+
+        assertEquals(primero.id(), repetido.id());
+        assertNotEquals(primero.id(), otroRango.id());
+        assertEquals(2, tabla.size());
+
+        permisos.release(3);
+        esperar(() -> service.estado(primero.id()).estado() == ReportJobEnum.TERMINADO);
+        esperar(() -> service.estado(otroRango.id()).estado() == ReportJobEnum.TERMINADO);
+    }
+
+    @Test
+    void unResultadoTerminadoHacePocoSeReutilizaYUnoViejoNo() {
+        permisos.release(1000);
+        long id = terminar(OCHO_SEMANAS);
+
+        assertEquals(id, service.enviar(OCHO_SEMANAS, "admin").id());
+        assertEquals(1, tabla.size());
+
+        tabla.get(id).finishedAt = LocalDateTime.now().minusMinutes(16);
+        long nuevo = service.enviar(OCHO_SEMANAS, "admin").id();
+        assertNotEquals(id, nuevo);
+        esperar(() -> service.estado(nuevo).estado() == ReportJobEnum.TERMINADO);
+    }
+
+    @Test
+    void unJobVencidoNoSeEncuentraNiSeReutilizaYSePurga() {
+        permisos.release(1000);
+        long id = terminar(OCHO_SEMANAS);
+        tabla.get(id).expiresAt = LocalDateTime.now().minusSeconds(1);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> service.estado(id));
+        assertEquals(404, e.getStatusCode().value());
+        assertThrows(ResponseStatusException.class, () -> service.resultado(id));
+
+        service.purgarVencidos();
+        assertFalse(tabla.containsKey(id));
+        assertNotEquals(id, service.enviar(OCHO_SEMANAS, "admin").id());
+    }
+
+    @Test
+    void elAvanceSeInformaPorTramoYCadaTramoUsaSuPropiaTransaccion() {
+        permisos.release(1);
+        long id = service.enviar(OCHO_SEMANAS, "admin").id();
+
+        esperar(() -> service.estado(id).progreso() == 50);
+        assertEquals(ReportJobEnum.EN_CURSO, service.estado(id).estado());
+        // El segundo tramo abrió su transacción y espera dentro de la consulta; el primero ya cerró la suya
+        verify(transactionManager, timeout(5000).times(2)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+
+        permisos.release(1);
+        esperar(() -> service.estado(id).estado() == ReportJobEnum.TERMINADO);
+        assertEquals(100, service.estado(id).progreso());
+        assertEquals(2, service.estado(id).filas());
+        assertEquals(2, tramos.get());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void conLaColaLlenaRechazaCon503YNoDejaElJob() {
+        service.detener();
+        service = service(1, 1);
+        ReportJobDto corriendo = service.enviar(OCHO_SEMANAS, "admin");
+        ReportJobDto encolado = service.enviar(new ReportJobRequest(
+                ReportJobService.SIN_VENTAS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)), "admin");
+
+        BulkheadLlenoException e = assertThrows(BulkheadLlenoException.class, () -> service.enviar(
+                new ReportJobRequest(ReportJobService.VENTAS_PRODUCTO_SEMANA,
+                        LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 29)), "admin"));
+        assertEquals(503, e.getStatusCode().value());
+        assertEquals("30", e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(2, tabla.size());
+        assertTrue(tabla.containsKey(corriendo.id()));
+        assertTrue(tabla.containsKey(encolado.id()));
+    }
+
+    @Test
+    void elResultadoSeGuardaComprimidoYTambienSeEntregaPlano() throws IOException {
+        permisos.release(1000);
+        long id = terminar(OCHO_SEMANAS);
+
+        byte[] plano = service.resultado(id);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(service.resultadoComprimido(id)))) {
+            assertArrayEquals(plano, gzip.readAllBytes());
+        }
+        String json = new String(plano, StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[{\"productId\":7,"), json);
+        assertTrue(json.contains("\"2024-01-29\""), json);
+    }
+
+    private long terminar(ReportJobRequest req) {
+        long id = service.enviar(req, "admin").id();
+        esperar(() -> service.estado(id).estado() == ReportJobEnum.TERMINADO);
+        return id;
+    }
+
+    private static void esperar(BooleanSupplier condicion) {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "La condición no se cumplió a tiempo");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    private void insertar(PreparedStatementCreator creator, KeyHolder keys) throws SQLException {
+        Map<Integer, Object> valores = new HashMap<>();
+        PreparedStatement ps = mock(PreparedStatement.class, i -> {
+            if (i.getMethod().getName().startsWith("set")) {
+                valores.put(i.getArgument(0), i.getArgument(1));
+            }
+            return null;
+        });
+        Connection con = mock(Connection.class);
+        when(con.prepareStatement(anyString(), anyInt())).thenReturn(ps);
+        creator.createPreparedStatement(con);
+
+        Fila f = new Fila();
+        f.id = secuencia.incrementAndGet();
+        f.tipo = (String) valores.get(1);
+        f.desde = ((Date) valores.get(2)).toLocalDate();
+        f.hasta = ((Date) valores.get(3)).toLocalDate();
+        f.clave = (String) valores.get(4);
+        f.estado = ReportJobEnum.valueOf((String) valores.get(5));
+        f.createdAt = ((Timestamp) valores.get(7)).toLocalDateTime();
+        f.expiresAt = ((Timestamp) valores.get(8)).toLocalDateTime();
+        tabla.put(f.id, f);
+        keys.getKeyList().add(Map.of("GENERATED_KEY", f.id));
+    }
+
+    private int actualizar(String sql, Object[] args) {
+        if (sql.startsWith("UPDATE report_jobs SET estado = ? WHERE id = ?")) {
+            tabla.get((Long) args[1]).estado = ReportJobEnum.valueOf((String) args[0]);
+        } else if (sql.startsWith("UPDATE report_jobs SET estado = ?, filas = ?")) {
+            Fila f = tabla.get((Long) args[5]);
+            f.filas = (Integer) args[1];
+            f.resultado = (byte[]) args[2];
+            f.finishedAt = ((Timestamp) args[3]).toLocalDateTime();
+            f.expiresAt = ((Timestamp) args[4]).toLocalDateTime();
+            f.estado = ReportJobEnum.valueOf((String) args[0]);
+        } else if (sql.startsWith("UPDATE report_jobs SET estado = ?, error = ?, finished_at = ? WHERE id = ?")) {
+            Fila f = tabla.get((Long) args[3]);
+            f.error = (String) args[1];
+            f.finishedAt = ((Timestamp) args[2]).toLocalDateTime();
+            f.estado = ReportJobEnum.valueOf((String) args[0]);
+        } else if (sql.startsWith("DELETE FROM report_jobs WHERE id = ?")) {
+            return tabla.remove((Long) args[0]) != null ? 1 : 0;
+        } else if (sql.startsWith("DELETE FROM report_jobs WHERE expires_at < ?")) {
+            LocalDateTime ahora = ((Timestamp) args[0]).toLocalDateTime();
+            int antes = tabla.size();
+            tabla.values().removeIf(f -> f.expiresAt.isBefore(ahora));
+            return antes - tabla.size();
+        } else {
+            fail("SQL no simulado: " + sql);
+        }
+        return 1;
+    }
+
+    private static ResultSet resultSet(Fila f) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(f.id);
+        when(rs.getString(2)).thenReturn(f.tipo);
+        when(rs.getDate(3)).thenReturn(Date.valueOf(f.desde));
+        when(rs.getDate(4)).thenReturn(Date.valueOf(f.hasta));
+        when(rs.getString(5)).thenReturn(f.estado.name());
+        when(rs.getObject(6, Integer.class)).thenReturn(f.filas);
+        when(rs.getString(7)).thenReturn(f.error);
+        when(rs.getTimestamp(8)).thenReturn(Timestamp.valueOf(f.createdAt));
+        when(rs.getTimestamp(9)).thenReturn(f.finishedAt != null ? Timestamp.valueOf(f.finishedAt) : null);
+        when(rs.getTimestamp(10)).thenReturn(Timestamp.valueOf(f.expiresAt));
+        return rs;
+    }
+}
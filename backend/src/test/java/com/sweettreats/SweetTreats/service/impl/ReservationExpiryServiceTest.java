@@ -0,0 +1,57 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.event.OrderChangedEvent;
+import com.sweettreats.SweetTreats.model.OrderEnum;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import com.sweettreats.SweetTreats.service.OrderService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReservationExpiryServiceTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final ReservationExpiryService service =
+            new ReservationExpiryService(orderService, orderRepository, Duration.ofMinutes(30), 1);
+
+    private static OrderChangedEvent evento(long id, OrderEnum anterior, OrderEnum estado, LocalDateTime createdAt) {
+        return new OrderChangedEvent(id, 1L, anterior, estado, BigDecimal.TEN, createdAt);
+    }
+
+    @Test
+    void unPedidoCreadoHaceMasDelTtlVence() {
+        service.onOrderChanged(evento(1, null, OrderEnum.PENDIENTE, LocalDateTime.now().minusHours(2)));
+
+        service.vencer();
+        verify(orderService).expirarPedidos(List.of(1L));
+    }
+
+    @Test
+    void unPedidoViejoReactivadoCuentaElPlazoDesdeLaReactivacion() {
+        LocalDateTime hace2Dias = LocalDateTime.now().minusDays(2);
+        service.onOrderChanged(evento(1, null, OrderEnum.PENDIENTE, hace2Dias));
+        service.onOrderChanged(evento(1, OrderEnum.PENDIENTE, OrderEnum.CANCELADO, hace2Dias));
+        service.onOrderChanged(evento(1, OrderEnum.CANCELADO, OrderEnum.PENDIENTE, hace2Dias));
+
+        service.vencer();
+        verify(orderService, never()).expirarPedidos(any());
+    }
+
+    @Test
+    void alArrancarSeReprogramaDesdeLaUltimaTransicion() {
+        when(orderRepository.findIdAndUpdatedAtByEstado(OrderEnum.PENDIENTE)).thenReturn(List.of(
+                new Object[]{1L, LocalDateTime.now().minusHours(1)},
+                new Object[]{2L, LocalDateTime.now().minusMinutes(5)}));
+        service.reconstruir();
+
+        service.vencer();
+        verify(orderService).expirarPedidos(List.of(1L));
+    }
+}
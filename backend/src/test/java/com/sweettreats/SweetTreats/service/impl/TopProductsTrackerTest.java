@@ -0,0 +1,91 @@
+package com.sweettreats.SweetTreats.service.impl;
+
+import com.sweettreats.SweetTreats.dto.OrderLineDto;
+import com.sweettreats.SweetTreats.dto.ProductStatDto;
+import com.sweettreats.SweetTreats.event.SalesDeltaEvent;
+import com.sweettreats.SweetTreats.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class TopProductsTrackerTest {
+
+    private static final List<Integer> VENTANAS = List.of(0, 6, 29, 366);
+
+    // Capacidad chica para que los resúmenes diarios desalojen contadores
+    private static TopProductsTracker tracker() {
+        TopProductsTracker t = new TopProductsTracker(mock(JdbcTemplate.class), mock(OrderRepository.class), true, 4);
+        t.cargar();
+        return t;
+    }
+
+    private static List<String> top(TopProductsTracker t, int dias) {
+        return t.top(LocalDate.now().minusDays(dias), 50).stream()
+                .map(p -> p.getProductId() + ":" + p.getTotalCantidad() + ":" + p.getTotalIngresos())
+                .toList();
+    }
+
+    private static SalesDeltaEvent.Venta venta(Random random, long orderId) {
+        List<OrderLineDto> lineas = new ArrayList<>();
+        for (int i = 0, n = 1 + random.nextInt(3); i < n; i++) {
+            long producto = random.nextInt(12);
+            lineas.add(new OrderLineDto(orderId, producto, "P" + producto, 1 + random.nextInt(5),
+                    BigDecimal.valueOf(100 + producto * 25, 2)));
+        }
+        return new SalesDeltaEvent.Venta(orderId, 1L,
+                LocalDate.now().minusDays(random.nextInt(40)).atTime(12, 0), BigDecimal.TEN, 1, lineas);
+    }
+
+    private static SalesDeltaEvent.Venta cancelada(SalesDeltaEvent.Venta v) {
+        return new SalesDeltaEvent.Venta(v.orderId(), v.userId(), v.createdAt(), v.total(), -1, v.lineas());
+    }
+
+    @Test
+    void lasVentanasMantenidasConDeltasCoincidenConCombinarLosDias() {
+        Random random = new Random(7);
+        TopProductsTracker incremental = tracker();
+        List<SalesDeltaEvent> eventos = new ArrayList<>();
+        List<SalesDeltaEvent.Venta> vigentes = new ArrayList<>();
+        VENTANAS.forEach(d -> top(incremental, d));
+
+        for (int paso = 1; paso <= 2_000; paso++) {
+            SalesDeltaEvent.Venta v = random.nextInt(5) == 0 && !vigentes.isEmpty()
+                    ? cancelada(vigentes.remove(random.nextInt(vigentes.size())))
+                    : venta(random, paso);
+            if (v.signo() > 0) {
+                vigentes.add(v);
+            }
+            SalesDeltaEvent evento = new SalesDeltaEvent(List.of(v));
+            eventos.add(evento);
+            incremental.onSalesDelta(evento);
+            top(incremental, VENTANAS.get(random.nextInt(VENTANAS.size())));
+
+            if (paso % 250 == 0) {
+                TopProductsTracker desdeCero = tracker();
+                eventos.forEach(desdeCero::onSalesDelta);
+                for (int dias : VENTANAS) {
+                    assertEquals(top(desdeCero, dias), top(incremental, dias), "Ventana de " + dias + " días, paso " + paso);
+                }
+            }
+        }
+    }
+
+    @Test
+    void cancelarTodoVaciaLaVentana() {
+        TopProductsTracker t = tracker();
+        SalesDeltaEvent.Venta v = venta(new Random(1), 1);
+        t.onSalesDelta(new SalesDeltaEvent(List.of(v)));
+        assertFalse(top(t, 366).isEmpty());
+
+        t.onSalesDelta(new SalesDeltaEvent(List.of(cancelada(v))));
+        assertEquals(List.of(), top(t, 366));
+    }
+}
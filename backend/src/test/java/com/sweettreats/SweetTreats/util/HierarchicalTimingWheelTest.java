@@ -0,0 +1,163 @@
+package com.sweettreats.SweetTreats.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    // Ids que vencen al avanzar de a 1 ms hasta hastaMillis, con el instante en que vencieron
+    private static Map<Long, Long> avanzarDeAUno(HierarchicalTimingWheel wheel, long desdeMillis, long hastaMillis) {
+        Map<Long, Long> vencidos = new HashMap<>();
+        for (long t = desdeMillis; t <= hastaMillis; t++) {
+            for (Long id : wheel.advance(t)) {
+                assertNull(vencidos.put(id, t), "Vencido dos veces: " + id);
+            }
+        }
+        return vencidos;
+    }
+
+    @Test
+    void idsEnLaMismaRanuraVencenJuntosYUnaSolaVez() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10, 2, 3, 0);
+        wheel.schedule(1, 25);
+        wheel.schedule(2, 30);
+        wheel.schedule(2, 30);
+        assertEquals(2, wheel.size());
+
+        assertEquals(List.of(), wheel.advance(29));
+        assertEquals(Set.of(1L, 2L), new HashSet<>(wheel.advance(30)));
+        assertEquals(List.of(), wheel.advance(100));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void laCascadaBajaLosIdsDeNivelSinAdelantarNiAtrasarElVencimiento() {
+        // 4 ranuras por nivel: el nivel 1 cubre 16 ticks y el nivel 2, 64
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 2, 3, 0);
+        wheel.schedule(1, 3);
+        wheel.schedule(2, 5);
+        wheel.schedule(3, 17);
+        wheel.schedule(4, 37);
+        wheel.schedule(5, 63);
+
+        Map<Long, Long> vencidos = avanzarDeAUno(wheel, 1, 70);
+        assertEquals(Map.of(1L, 3L, 2L, 5L, 3L, 17L, 4L, 37L, 5L, 63L), vencidos);
+    }
+
+    @Test
+    void laCascadaFuncionaAunqueSeAvanceDeUnSaltoVariasVueltas() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 2, 3, 0);
+        wheel.schedule(1, 37);
+        wheel.schedule(2, 50);
+
+        assertEquals(List.of(), wheel.advance(36));
+        assertEquals(List.of(1L), wheel.advance(49));
+        assertEquals(List.of(2L), wheel.advance(1000));
+    }
+
+    @Test
+    void unIdCanceladoNoVence() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 2, 3, 0);
+        wheel.schedule(1, 5);
+        wheel.schedule(2, 40);
+        wheel.schedule(3, 40);
+        wheel.cancel(1);
+        wheel.cancel(2);
+        wheel.cancel(99);
+        assertEquals(1, wheel.size());
+
+        assertEquals(Map.of(3L, 40L), avanzarDeAUno(wheel, 1, 100));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void reprogramarReemplazaElVencimientoAnterior() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 2, 3, 0);
+        wheel.schedule(1, 10);
+        wheel.schedule(1, 30);
+        wheel.schedule(2, 30);
+        wheel.schedule(2, 8);
+        wheel.schedule(3, 12);
+        wheel.cancel(3);
+        wheel.schedule(3, 20);
+
+        assertEquals(Map.of(1L, 30L, 2L, 8L, 3L, 20L), avanzarDeAUno(wheel, 1, 40));
+    }
+
+    @Test
+    void vencimientosMasAllaDelUltimoNivelEsperanLasVueltasQueFalten() {
+        // Dos niveles de 4 ranuras: el horizonte es de 16 ticks
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 2, 2, 0);
+        wheel.schedule(1, 100);
+        wheel.schedule(2, 1_000);
+        wheel.schedule(3, 15);
+
+        Map<Long, Long> vencidos = avanzarDeAUno(wheel, 1, 1_100);
+        assertEquals(Map.of(1L, 100L, 2L, 1_000L, 3L, 15L), vencidos);
+    }
+
+    @Test
+    void unVencimientoYaPasadoSaleEnElProximoAvance() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10, 2, 3, 1_000);
+        wheel.schedule(1, 500);
+        wheel.schedule(2, 1_000);
+
+        assertEquals(Set.of(1L, 2L), new HashSet<>(wheel.advance(1_000)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void unVencimientoPasadoReprogramadoAlFuturoEsperaAlNuevo() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 2, 3, 100);
+        wheel.schedule(1, 50);
+        wheel.schedule(1, 120);
+        wheel.schedule(2, 50);
+        wheel.cancel(2);
+
+        assertEquals(List.of(), wheel.advance(100));
+        assertEquals(Map.of(1L, 120L), avanzarDeAUno(wheel, 101, 150));
+    }
+
+    @Test
+    void coincideConUnaListaOrdenadaEnSecuenciasAleatorias() {
+        Random random = new Random(42);
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 3, 3, 0);
+        Map<Long, Long> esperados = new HashMap<>();
+        long ahora = 0;
+        for (int paso = 0; paso < 5_000; paso++) {
+            long id = random.nextInt(300);
+            int accion = random.nextInt(10);
+            if (accion < 6) {
+                long deadline = ahora + random.nextInt(2_000) - 10;
+                wheel.schedule(id, deadline);
+                esperados.put(id, deadline);
+            } else if (accion < 7) {
+                wheel.cancel(id);
+                esperados.remove(id);
+            } else {
+                ahora += random.nextInt(50);
+                List<Long> vencidos = new ArrayList<>(wheel.advance(ahora));
+                List<Long> debian = new ArrayList<>();
+                for (Map.Entry<Long, Long> e : esperados.entrySet()) {
+                    if (e.getValue() <= ahora) {
+                        debian.add(e.getKey());
+                    }
+                }
+                debian.forEach(esperados::remove);
+                vencidos.sort(null);
+                debian.sort(null);
+                assertEquals(debian, vencidos, "En " + ahora + " ms");
+            }
+            assertEquals(esperados.size(), wheel.size());
+        }
+    }
+}
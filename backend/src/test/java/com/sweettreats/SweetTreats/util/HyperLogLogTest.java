@@ -0,0 +1,56 @@
+package com.sweettreats.SweetTreats.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimaDentroDeTresErroresEstandar() {
+        for (int n : new int[]{10, 1_000, 50_000, 1_000_000}) {
+            HyperLogLog hll = new HyperLogLog();
+            for (long id = 1; id <= n; id++) {
+                hll.agregar(id);
+                hll.agregar(id);
+            }
+            double error = Math.abs(hll.estimar() - n) / (double) n;
+            assertTrue(error < 3 * HyperLogLog.ERROR_ESTANDAR, "n=" + n + " estimado=" + hll.estimar());
+        }
+    }
+
+    @Test
+    void unirCuentaUnaSolaVezLosRepetidos() {
+        HyperLogLog lunes = new HyperLogLog();
+        HyperLogLog martes = new HyperLogLog();
+        HyperLogLog ambos = new HyperLogLog();
+        for (long id = 0; id < 20_000; id++) {
+            lunes.agregar(id);
+            ambos.agregar(id);
+        }
+        for (long id = 10_000; id < 30_000; id++) {
+            martes.agregar(id);
+            ambos.agregar(id);
+        }
+        lunes.unir(martes);
+        assertEquals(ambos, lunes);
+    }
+
+    @Test
+    void serializaDispersoYDenso() {
+        HyperLogLog pocos = new HyperLogLog();
+        for (long id = 0; id < 30; id++) {
+            pocos.agregar(id);
+        }
+        byte[] chico = pocos.aBytes();
+        assertTrue(chico.length <= 1 + 30 * 3);
+        assertEquals(pocos, HyperLogLog.deBytes(chico));
+
+        HyperLogLog muchos = new HyperLogLog();
+        for (long id = 0; id < 100_000; id++) {
+            muchos.agregar(id);
+        }
+        assertEquals(muchos, HyperLogLog.deBytes(muchos.aBytes()));
+        assertTrue(HyperLogLog.deBytes(null).vacio());
+    }
+}
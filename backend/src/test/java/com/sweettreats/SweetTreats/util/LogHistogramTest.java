@@ -0,0 +1,66 @@
+package com.sweettreats.SweetTreats.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogHistogramTest {
+
+    @Test
+    void cuantilesDentroDelErrorRelativo() {
+        LogHistogram h = new LogHistogram();
+        Random random = new Random(7);
+        long[] valores = new long[100_000];
+        for (int i = 0; i < valores.length; i++) {
+            // Tickets entre $1 y ~$2000 con cola larga, en centavos
+            valores[i] = 100 + (long) (Math.exp(random.nextDouble() * 7.6) * 10);
+            h.agregar(valores[i], 1);
+        }
+        Arrays.sort(valores);
+        for (double q : new double[]{0.5, 0.9, 0.99, 1.0}) {
+            long real = valores[(int) Math.ceil(q * valores.length) - 1];
+            long estimado = h.cuantil(q);
+            assertTrue(Math.abs(estimado - real) <= real / 64.0 + 1,
+                    "q=" + q + " real=" + real + " estimado=" + estimado);
+        }
+        assertEquals(h.cuantil(1.0), h.maximo());
+    }
+
+    @Test
+    void combinarEsIgualACargarTodoJunto() {
+        LogHistogram a = new LogHistogram();
+        LogHistogram b = new LogHistogram();
+        LogHistogram todo = new LogHistogram();
+        for (long v = 1; v < 1_000_000; v += 997) {
+            (v % 2 == 0 ? a : b).agregar(v, 1);
+            todo.agregar(v, 1);
+        }
+        a.sumar(b);
+        assertEquals(todo.total(), a.total());
+        for (double q : new double[]{0.1, 0.5, 0.9, 0.99}) {
+            assertEquals(todo.cuantil(q), a.cuantil(q));
+        }
+    }
+
+    @Test
+    void restarDeshaceAgregar() {
+        LogHistogram h = new LogHistogram();
+        h.agregar(50, 3);
+        h.agregar(123_456, 1);
+        h.restar(123_456, 1);
+        assertEquals(3, h.total());
+        assertEquals(50, h.maximo());
+        assertEquals(0, new LogHistogram().cuantil(0.5));
+    }
+
+    @Test
+    void indicesYRepresentativosSonConsistentes() {
+        for (long v = 0; v < 5_000_000; v += 13) {
+            int i = LogHistogram.indice(v);
+            assertEquals(i, LogHistogram.indice(LogHistogram.representativo(i)));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.sweettreats.SweetTreats.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LttbTest {
+
+    @Test
+    void serieCortaQuedaEntera() {
+        double[] x = {0, 1, 2, 3};
+        double[] y = {5, 1, 7, 2};
+        assertArrayEquals(new int[]{0, 1, 2, 3}, Lttb.seleccionar(x, y, 10));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, Lttb.seleccionar(x, y, 2));
+    }
+
+    @Test
+    void reduceConservandoExtremosYPicos() {
+        int n = 3650;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = 100 + 10 * Math.sin(i / 30.0);
+        }
+        y[1234] = 5000;
+        y[2500] = 0;
+
+        int[] elegidos = Lttb.seleccionar(x, y, 300);
+        assertEquals(300, elegidos.length);
+        assertEquals(0, elegidos[0]);
+        assertEquals(n - 1, elegidos[299]);
+        for (int i = 1; i < elegidos.length; i++) {
+            assertTrue(elegidos[i] > elegidos[i - 1]);
+        }
+        assertTrue(contiene(elegidos, 1234), "el pico tiene que sobrevivir");
+        assertTrue(contiene(elegidos, 2500), "el valle tiene que sobrevivir");
+    }
+
+    private static boolean contiene(int[] a, int v) {
+        for (int i : a) {
+            if (i == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
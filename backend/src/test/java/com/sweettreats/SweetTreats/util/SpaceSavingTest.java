@@ -0,0 +1,68 @@
+package com.sweettreats.SweetTreats.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    @Test
+    void conMenosIdsQueCapacidadEsExacto() {
+        SpaceSaving ss = new SpaceSaving(10);
+        ss.agregar(1, 5, 500);
+        ss.agregar(2, 3, 300);
+        ss.agregar(1, 2, 200);
+        ss.restar(2, 1, 100);
+
+        List<SpaceSaving.Contador> top = ss.contadores();
+        assertEquals(2, top.size());
+        assertEquals(1, top.get(0).id());
+        assertEquals(7, top.get(0).cuenta());
+        assertEquals(700, top.get(0).centavos());
+        assertEquals(0, top.get(0).error());
+        assertEquals(2, top.get(1).cuenta());
+        assertEquals(0, ss.minimo());
+    }
+
+    @Test
+    void losPesadosSobrevivenYLasCotasSeCumplen() {
+        SpaceSaving ss = new SpaceSaving(20);
+        Map<Long, Long> real = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Diez ids concentran la mitad del peso; el resto se reparte entre mil
+            long id = random.nextBoolean() ? random.nextInt(10) : 10 + random.nextInt(1000);
+            ss.agregar(id, 1, 0);
+            real.merge(id, 1L, Long::sum);
+        }
+
+        List<SpaceSaving.Contador> top = ss.contadores();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(top.get(i).id() < 10, "el top 10 son los ids pesados");
+        }
+        for (SpaceSaving.Contador c : top) {
+            long r = real.get(c.id());
+            assertTrue(c.cuenta() >= r);
+            assertTrue(c.cuenta() - c.error() <= r);
+        }
+        real.forEach((id, r) -> {
+            if (top.stream().noneMatch(c -> c.id() == id)) {
+                assertTrue(r <= ss.minimo());
+            }
+        });
+    }
+
+    @Test
+    void restarUnIdQueLlegaACeroLoSaca() {
+        SpaceSaving ss = new SpaceSaving(2);
+        ss.agregar(1, 2, 0);
+        ss.restar(1, 2, 0);
+        ss.restar(99, 1, 0);
+        assertEquals(0, ss.tamanio());
+    }
+}
@@ -0,0 +1,49 @@
+package com.sweettreats.SweetTreats.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void idsSonCrecientesYCabenEnUnNumberDeJavaScript() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(5);
+        long previo = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previo);
+            assertTrue(id < (1L << 53));
+            assertEquals(5, id & ((1 << TimeOrderedIdGenerator.NODE_BITS) - 1));
+            previo = id;
+        }
+    }
+
+    @Test
+    void idsNoSeRepitenEntreHilos() throws InterruptedException {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(400_000, ids.size());
+    }
+
+    @Test
+    void nodoFueraDeRangoEsRechazado() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIdGenerator(16));
+    }
+}
@@ -7,6 +7,19 @@ export const getAllOrdersRequest = (page = 0, size = 10) =>
 export const updateOrderStatusRequest = (id, body) =>
   axios.put(`/api/orders/admin/${id}`, body);
 
+export const bulkUpdateOrderStatusRequest = (ids, estado) =>
+  axios.put("/api/orders/admin/status", { ids, estado });
+
+// Listado por cursor: filters = { estado, desde, hasta, userId }
+export const searchOrdersRequest = (filters = {}, cursor, size = 20, count = false) =>
+  axios.get("/api/orders/admin/search", { params: { ...filters, cursor, size, count } });
+
+// Stream SSE de cambios de pedidos; EventSource reconecta solo y envía Last-Event-ID
+export const openOrdersStream = () =>
+  new EventSource(`${axios.defaults.baseURL}/api/orders/admin/stream`, {
+    withCredentials: true,
+  });
+
 export const getOrderAdminByIdRequest = (id) =>
   axios.get(`/api/orders/admin/${id}`);
 
@@ -53,11 +66,29 @@ export const reactivateProductRequest = (id) =>
 
 
 // Reports
+export const exportOrdersRequest = (params = {}) =>
+  axios.get("/api/reports/export/orders", { params, responseType: "blob" });
+
+export const dashboardRequest = (period = "month", lowStockThreshold = 10, noSalesDays = 30) =>
+  axios.get("/api/reports/dashboard", {
+    params: { period, lowStockThreshold, noSalesDays },
+  });
+
 export const salesRequest = (period) =>
   axios.get(`/api/reports/sales?period=${period}`);
 
-export const salesTrendRequest = (period) =>
-  axios.get(`/api/reports/sales-trend?period=${period}`);
+export const submitReportJobRequest = (tipo, desde, hasta) =>
+  axios.post(`/api/reports/jobs`, { tipo, desde, hasta });
+
+export const reportJobRequest = (id) =>
+  axios.get(`/api/reports/jobs/${id}`);
+
+export const reportJobResultRequest = (id) =>
+  axios.get(`/api/reports/jobs/${id}/result`);
+
+export const salesTrendRequest = (period, granularity = "day", points) =>
+  axios.get(`/api/reports/sales-trend?period=${period}&granularity=${granularity}` +
+    (points != null ? `&points=${points}` : ""));
 
 export const ticketAverageRequest = (period) =>
   axios.get(`/api/reports/ticket-average?period=${period}`);
@@ -65,8 +96,8 @@ export const ticketAverageRequest = (period) =>
 export const salesGrowthRequest = (period) =>
   axios.get(`/api/reports/sales-growth?period=${period}`);
 
-export const topProductsRequest = () =>
-  axios.get(`/api/reports/top-products`);
+export const topProductsRequest = (period = "all") =>
+  axios.get(`/api/reports/top-products?period=${period}`);
 
 export const lowStockRequest = () =>
   axios.get(`/api/reports/low-stock`);
@@ -1,8 +1,12 @@
 import axios from "./axios";
 
-export const createOrderRequest = (order) => axios.post("/api/orders", order);
+export const createOrderRequest = (order, idempotencyKey) =>
+  axios.post("/api/orders", order, {
+    headers: idempotencyKey ? { "Idempotency-Key": idempotencyKey } : {},
+  });
 
-export const getUserOrdersRequest = () => axios.get("/api/orders");
+export const getUserOrdersRequest = (cursor, size = 20) =>
+  axios.get("/api/orders", { params: { cursor, size } });
 
 export const cancelOrderRequest = (orderId) =>
   axios.put(`/api/orders/${orderId}/cancel`);
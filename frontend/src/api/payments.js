@@ -1,4 +1,8 @@
 import axios from "./axios"; 
 
-export const createPaymentIntent = (amount) =>
-  axios.post("/api/payments/create-payment-intent", { amount });
\ No newline at end of file
+export const createPaymentIntent = (amount, idempotencyKey) =>
+  axios.post(
+    "/api/payments/create-payment-intent",
+    { amount },
+    { headers: idempotencyKey ? { "Idempotency-Key": idempotencyKey } : {} }
+  );
\ No newline at end of file
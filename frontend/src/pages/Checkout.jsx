@@ -1,5 +1,5 @@
 import { useCart } from "../context/CartContext";
-import { useEffect, useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import { useNavigate } from "react-router-dom";
 import { Button } from "../components/ui/button";
 import { Input } from "../components/ui/input";
@@ -41,6 +41,12 @@ function CheckoutForm() {
   const [openSuccess, setOpenSuccess] = useState(false);
   const [orderDone, setOrderDone] = useState(false);
   const [processing, setProcessing] = useState(false);
+  // Una clave por intento de compra: los reintentos la repiten y el backend no duplica
+  const idempotencyKey = useRef(crypto.randomUUID());
+
+  useEffect(() => {
+    idempotencyKey.current = crypto.randomUUID();
+  }, [cart]);
 
   const {
     control,
@@ -89,7 +95,7 @@ function CheckoutForm() {
     try {
       const {
         data: { clientSecret },
-      } = await createPaymentIntent(total * 100);
+      } = await createPaymentIntent(total * 100, idempotencyKey.current);
 
       const cardElement = elements.getElement(CardElement);
       const { error } = await stripe.confirmCardPayment(clientSecret, {
@@ -106,15 +112,18 @@ function CheckoutForm() {
         return;
       }
 
-      await createOrderRequest({
-        direccionEnvio: data.direccion,
-        metodoPago: data.tipoTarjeta,
-        items: cart.map((item) => ({
-          productId: item.id,
-          cantidad: item.cantidad,
-          precioUnitario: item.precio,
-        })),
-      });
+      await createOrderRequest(
+        {
+          direccionEnvio: data.direccion,
+          metodoPago: data.tipoTarjeta,
+          items: cart.map((item) => ({
+            productId: item.id,
+            cantidad: item.cantidad,
+            precioUnitario: item.precio,
+          })),
+        },
+        idempotencyKey.current
+      );
       dispatch({ type: "CLEAR_CART" });
       setOrderDone(true);
       toast.success("🍰 Pedido realizado con éxito");
@@ -20,6 +20,7 @@ import Spinner from "../components/Spinner";
 
 export default function MyOrders() {
   const [orders, setOrders] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loading, setLoading] = useState(true);
   const [selected, setSelected] = useState(null);
   const [currentPage, setCurrentPage] = useState(1);
@@ -29,7 +30,8 @@ export default function MyOrders() {
     async function fetchOrders() {
       try {
         const res = await getUserOrdersRequest();
-        setOrders(res.data);
+        setOrders(res.data.items);
+        setNextCursor(res.data.nextCursor);
       } catch {
         toast.error("Error al cargar pedidos");
       } finally {
@@ -92,7 +94,9 @@ export default function MyOrders() {
       toast.success("Pedido cancelado correctamente");
       setLoading(true);
       const res = await getUserOrdersRequest();
-      setOrders(res.data);
+      setOrders(res.data.items);
+      setNextCursor(res.data.nextCursor);
+      setCurrentPage(1);
     } catch {
       toast.error("No se pudo cancelar el pedido");
     } finally {
@@ -100,6 +104,16 @@ export default function MyOrders() {
     }
   };
 
+  const handleLoadMore = async () => {
+    try {
+      const res = await getUserOrdersRequest(nextCursor);
+      setOrders((prev) => [...prev, ...res.data.items]);
+      setNextCursor(res.data.nextCursor);
+    } catch {
+      toast.error("Error al cargar pedidos");
+    }
+  };
+
   return (
     <>
       <MobileHeader />
@@ -227,6 +241,17 @@ export default function MyOrders() {
             ))}
           </div>
         )}
+
+        {nextCursor && (
+          <div className="flex justify-center mt-6">
+            <Button
+              className="bg-[#E96D87] hover:bg-[#d6627a] text-white font-[Comic_Neue] rounded-full px-6 py-2"
+              onClick={handleLoadMore}
+            >
+              Cargar pedidos anteriores
+            </Button>
+          </div>
+        )}
       </div>
     </>
   );
@@ -1,7 +1,9 @@
-import { useEffect, useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import {
+  exportOrdersRequest,
   getAllOrdersRequest,
   getOrderAdminByIdRequest,
+  openOrdersStream,
   updateOrderStatusRequest,
 } from "../../api/admin";
 import {
@@ -55,6 +57,8 @@ export default function OrdersAdmin() {
 
   const [viewingOrder, setViewingOrder] = useState(null);
   const [editingOrder, setEditingOrder] = useState(null);
+  const [newOrders, setNewOrders] = useState(0);
+  const pageRef = useRef(0);
 
   async function fetchOrders(p = 0) {
     setLoading(true);
@@ -63,6 +67,8 @@ export default function OrdersAdmin() {
       setOrders(data.content);
       setTotal(data.totalPages);
       setPage(data.number);
+      pageRef.current = data.number;
+      if (data.number === 0) setNewOrders(0);
     } catch {
       toast.error("Error al cargar pedidos");
     } finally {
@@ -74,6 +80,25 @@ export default function OrdersAdmin() {
     fetchOrders(0);
   }, []);
 
+  // Cambios en vivo: los estados se actualizan en la tabla sin volver a consultar;
+  // los pedidos nuevos solo se cuentan hasta que el admin recarga
+  useEffect(() => {
+    const stream = openOrdersStream();
+    stream.addEventListener("status-changed", (e) => {
+      const { orderId, estado } = JSON.parse(e.data);
+      setOrders((prev) =>
+        prev.map((o) => (o.id === orderId ? { ...o, estado } : o))
+      );
+    });
+    stream.addEventListener("order-created", () => {
+      setNewOrders((n) => n + 1);
+    });
+    stream.addEventListener("reset", () => {
+      fetchOrders(pageRef.current);
+    });
+    return () => stream.close();
+  }, []);
+
   const openView = async (id) => {
     try {
       const { data } = await getOrderAdminByIdRequest(id);
@@ -98,12 +123,48 @@ export default function OrdersAdmin() {
     }
   };
 
+  const handleExport = async () => {
+    try {
+      const { data } = await exportOrdersRequest();
+      const url = URL.createObjectURL(data);
+      const link = document.createElement("a");
+      link.href = url;
+      link.download = "pedidos.csv";
+      link.click();
+      URL.revokeObjectURL(url);
+    } catch {
+      toast.error("Error al exportar pedidos");
+    }
+  };
+
   return (
     <div className="min-h-screen p-6 bg-gradient-to-b from-[#E96D87] to-[#F9A1B0]">
-      <h2 className="text-3xl text-white text-center mb-8 font-[Comic_Neue]">
+      <h2 className="text-3xl text-white text-center mb-4 font-[Comic_Neue]">
         Gestión de Pedidos
       </h2>
 
+      <div className="flex justify-center mb-8">
+        <Button
+          className="bg-white text-[#E96D87] cursor-pointer"
+          onClick={handleExport}
+        >
+          Exportar CSV
+        </Button>
+      </div>
+
+      {newOrders > 0 && (
+        <div className="flex justify-center mb-4">
+          <Button
+            className="bg-white text-[#E96D87] cursor-pointer"
+            onClick={() => fetchOrders(0)}
+          >
+            {newOrders === 1
+              ? "1 pedido nuevo — ver"
+              : `${newOrders} pedidos nuevos — ver`}
+          </Button>
+        </div>
+      )}
+
       <div className="overflow-auto bg-white rounded-lg shadow-lg">
         <Table>
           <TableHeader>
@@ -1,12 +1,5 @@
 import { useEffect, useState } from "react";
-import {
-  salesRequest,
-  salesTrendRequest,
-  ticketAverageRequest,
-  topProductsRequest,
-  lowStockRequest,
-  noSalesRequest,
-} from "../../api/admin";
+import { dashboardRequest } from "../../api/admin";
 import { Card } from "../../components/ui/card";
 import {
   Table,
@@ -51,28 +44,14 @@ export default function ReportsAdmin() {
     async function fetchAll() {
       setLoading(true);
       try {
-        const [
-          salesRes,
-          trendRes,
-          avgRes,
-          topRes,
-          lowRes,
-          noRes,
-        ] = await Promise.all([
-          salesRequest("month"),
-          salesTrendRequest("month"),
-          ticketAverageRequest("month"),
-          topProductsRequest(),
-          lowStockRequest(10),
-          noSalesRequest(30),
-        ]);
+        const { data } = await dashboardRequest("month", 10, 30);
 
-        setTotalSales(salesRes.data.total);
-        setTrend(trendRes.data);    
-        setAvgTicket(avgRes.data.total);
-        setTopProducts(topRes.data);
-        setLowStock(lowRes.data);
-        setNoSales(noRes.data);
+        setTotalSales(data.totalSales);
+        setTrend(data.salesTrend);
+        setAvgTicket(data.ticketAverage);
+        setTopProducts(data.topProducts);
+        setLowStock(data.lowStock);
+        setNoSales(data.noSales);
       } catch {
         toast.error("Error al cargar reportes");
       } finally {
@@ -176,7 +155,7 @@ export default function ReportsAdmin() {
               </TableHeader>
               <TableBody>
                 {topProducts.map((p) => (
-                  <TableRow key={p.nombre}>
+                  <TableRow key={p.productId}>
                     <TableCell className="font-medium">
                       {p.nombre}
                     </TableCell>